@@ -9,23 +9,36 @@ public class Article {
     private String mSection;
     private String mTitle;
     private String mType;
-    private String mDate;
     private String mUrl;
+    private long mTimeInMillis;
+    private String mDisplayDate;
+    private String mThumbnailUrl;
+    private String mTrailText;
 
     /**
-     * {@link Article} object, takes in 5 String items
+     * {@link Article} object, takes in 7 String items and the publication time in milliseconds. Use
+     * {@link PublicationDateParser#createArticle} to parse and format the date off the UI thread.
+     * The section, type and display date repeat across many articles, so they are taken from the
+     * {@link StringPool} and shared.
      * @param section is the section name which the article is listed
      * @param title is the title of the article
      * @param type is the type of news piece, like article
-     * @param date is the date the article was published
      * @param url is the url String of the the article from the Guardian API
+     * @param timeInMillis is the publication date in milliseconds since the epoch, or -1
+     * @param displayDate is the publication date formatted for display
+     * @param thumbnailUrl is the url String of the thumbnail image, or null if there is none
+     * @param trailText is the plain text summary of the article, or null if there is none
      */
-    public Article(String section, String title, String type, String date, String url) {
-        mSection = section;
+    public Article(String section, String title, String type, String url, long timeInMillis,
+                   String displayDate, String thumbnailUrl, String trailText) {
+        mSection = StringPool.intern(section);
         mTitle = title;
-        mType = type;
-        mDate = date;
+        mType = StringPool.intern(type);
         mUrl = url;
+        mTimeInMillis = timeInMillis;
+        mDisplayDate = StringPool.intern(displayDate);
+        mThumbnailUrl = thumbnailUrl;
+        mTrailText = trailText;
     }
 
     // The following methods are for retrieving the individual string items from the object
@@ -41,11 +54,23 @@ public class Article {
         return mType;
     }
 
-    public String getDate() {
-        return mDate;
-    }
-
     public String getUrl() {
         return mUrl;
     }
+
+    public long getTimeInMillis() {
+        return mTimeInMillis;
+    }
+
+    public String getDisplayDate() {
+        return mDisplayDate;
+    }
+
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+
+    public String getTrailText() {
+        return mTrailText;
+    }
 }
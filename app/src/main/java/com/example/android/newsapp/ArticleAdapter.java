@@ -1,104 +1,237 @@
 package com.example.android.newsapp;
 
-import android.content.Context;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Created by ndoor on 11/26/2016.
- * An {@link ArrayAdapter} used to populate a ListView with {@link Article} object information
+ * A {@link RecyclerView.Adapter} used to populate a RecyclerView with {@link Article} object
+ * information. New lists are diffed against the current one on a background thread, so a refresh
+ * only rebinds the rows that actually changed. Thumbnails are loaded by the {@link ThumbnailLoader}
+ * and the load of a row is cancelled when the row is recycled.
  */
 
-public class ArticleAdapter extends ArrayAdapter<Article> {
+public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHolder> {
+
+    /**
+     * Interface for receiving clicks on the articles of the list
+     */
+    public interface OnArticleClickListener {
+        void onArticleClick(Article article);
+    }
+
+    // One background thread computes the diffs of every adapter, in the order they were submitted
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final OnArticleClickListener mClickListener;
+
+    // The list currently shown, never modified in place
+    private List<Article> mArticles = new ArrayList<>();
+
+    // Incremented with every submitted list, so only the diff of the latest one is applied
+    private int mGeneration;
+
+    // Loads the thumbnails, and their size in pixels, set when the first row is created
+    private ThumbnailLoader mThumbnailLoader;
+    private int mThumbnailWidth;
+    private int mThumbnailHeight;
 
     /**
      * Constructs a new {@link ArticleAdapter}
-     * @param context of the app
-     * @param articles is the list of articles, which is the data source of the adapter
+     * @param clickListener is notified when an article is clicked
      */
-    public ArticleAdapter(Context context, List<Article> articles) {
-        super(context, 0, articles);
+    public ArticleAdapter(OnArticleClickListener clickListener) {
+        mClickListener = clickListener;
+    }
+
+    /**
+     * Show a new list of articles. The difference to the current list is computed on a background
+     * thread, keyed on the article URL, and only the changed rows are updated.
+     * @param articles is the new list of articles, it must not be modified afterwards
+     */
+    public void submitList(final List<Article> articles) {
+        final int generation = ++mGeneration;
+        final List<Article> oldArticles = mArticles;
+
+        // Nothing to diff against, swap the list directly
+        if (oldArticles.isEmpty() || articles.isEmpty()) {
+            mArticles = articles;
+            notifyDataSetChanged();
+            return;
+        }
+
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult diffResult =
+                        DiffUtil.calculateDiff(new ArticleDiffCallback(oldArticles, articles));
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A newer list was submitted in the meantime, its diff will be applied
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        mArticles = articles;
+                        diffResult.dispatchUpdatesTo(ArticleAdapter.this);
+                    }
+                });
+            }
+        });
+    }
+
+    // Returns the article at the given position in the list
+    public Article getItem(int position) {
+        return mArticles.get(position);
     }
 
-    // Returns a list item view that displays information about the articles at the given position
-    // in the list of articles
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        View articleListItemView = convertView;
-        ViewHolder viewHolder;
-
-        // Check for an existing list view item to reuse, otherwise inflate a new layout
-        if (articleListItemView == null) {
-            articleListItemView = LayoutInflater.from(getContext()).inflate
-                    (R.layout.article_list_item, parent, false);
-
-            // Create a ViewHolder and populate it with the views being updated by this adapter
-            viewHolder = new ViewHolder();
-            viewHolder.articleSectionTextView =
-                    (TextView) articleListItemView.findViewById(R.id.section_text_view);
-            viewHolder.articleTitleTextView =
-                    (TextView) articleListItemView.findViewById(R.id.title_text_view);
-            viewHolder.articleTypeTextView =
-                    (TextView) articleListItemView.findViewById(R.id.type_text_view);
-            viewHolder.articleDateTextView =
-                    (TextView) articleListItemView.findViewById(R.id.date_text_view);
+    public int getItemCount() {
+        return mArticles.size();
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (mThumbnailLoader == null) {
+            mThumbnailLoader = ThumbnailLoader.getInstance(parent.getContext());
+            mThumbnailWidth = parent.getResources()
+                    .getDimensionPixelSize(R.dimen.thumbnail_width);
+            mThumbnailHeight = parent.getResources()
+                    .getDimensionPixelSize(R.dimen.thumbnail_height);
+        }
+        View articleListItemView = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.article_list_item, parent, false);
+        return new ViewHolder(articleListItemView);
+    }
+
+    // Updates the list item views with the information about the article at the given position
+    @Override
+    public void onBindViewHolder(ViewHolder viewHolder, int position) {
+        Article currentArticle = mArticles.get(position);
+
+        viewHolder.articleSectionTextView.setText(currentArticle.getSection());
+        viewHolder.articleTitleTextView.setText(currentArticle.getTitle());
+        viewHolder.articleTypeTextView.setText(currentArticle.getType());
 
-            // Store the holder with the view
-            articleListItemView.setTag(viewHolder);
+        // The publication date was already parsed and formatted when the article was created
+        viewHolder.articleDateTextView.setText(currentArticle.getDisplayDate());
+
+        String trailText = currentArticle.getTrailText();
+        if (trailText == null || trailText.isEmpty()) {
+            viewHolder.articleTrailTextView.setVisibility(View.GONE);
         } else {
-            // Use the ViewHolder which is already there
-            viewHolder = (ViewHolder) articleListItemView.getTag();
+            viewHolder.articleTrailTextView.setVisibility(View.VISIBLE);
+            viewHolder.articleTrailTextView.setText(trailText);
         }
 
-        // Get the {@link Article} object located at this position on the list
-        final Article currentArticle = getItem(position);
-
-        // If the current article object is not null, get the section, title, type String from the
-        // {@link Article} object and update the corresponding Views
-        if (currentArticle != null) {
-            viewHolder.articleSectionTextView.setText(currentArticle.getSection());
-            viewHolder.articleTitleTextView.setText(currentArticle.getTitle());
-            viewHolder.articleTypeTextView.setText(currentArticle.getType());
-
-            try {
-                // Get the publication date String from the {@link Article} object, parse it,
-                // reformat it, and update the date TextView
-                String dateString = currentArticle.getDate();
-                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-                Date newDate = format.parse(dateString);
-                String newDateString = formatDate(newDate);
-                viewHolder.articleDateTextView.setText(newDateString);
-
-            } catch (ParseException pe) {
-                // Catch the error if ParseException error is thrown, print exception to logs
-                Log.e("QueryUtils", "Problem parsing the date String", pe);
-            }
+        // Loading the new thumbnail cancels the load of the article the row showed before
+        String thumbnailUrl = currentArticle.getThumbnailUrl();
+        if (thumbnailUrl == null || thumbnailUrl.isEmpty()) {
+            mThumbnailLoader.cancel(viewHolder.articleThumbnailImageView);
+            viewHolder.articleThumbnailImageView.setVisibility(View.GONE);
+        } else {
+            viewHolder.articleThumbnailImageView.setVisibility(View.VISIBLE);
+            mThumbnailLoader.load(thumbnailUrl, viewHolder.articleThumbnailImageView,
+                    mThumbnailWidth, mThumbnailHeight);
         }
+    }
 
-        // Return the whole article list item layout so that it can be shown in the ListView
-        return articleListItemView;
+    // The row scrolled out of view, stop loading its thumbnail and let go of the bitmap
+    @Override
+    public void onViewRecycled(ViewHolder viewHolder) {
+        mThumbnailLoader.cancel(viewHolder.articleThumbnailImageView);
+        viewHolder.articleThumbnailImageView.setImageDrawable(null);
     }
 
     // {@link ViewHolder} for the the Views being changed by the {@link ArticleAdapter}
-    static class ViewHolder {
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         TextView articleSectionTextView;
         TextView articleTitleTextView;
         TextView articleTypeTextView;
         TextView articleDateTextView;
+        TextView articleTrailTextView;
+        ImageView articleThumbnailImageView;
+
+        ViewHolder(View articleListItemView) {
+            super(articleListItemView);
+            articleSectionTextView =
+                    (TextView) articleListItemView.findViewById(R.id.section_text_view);
+            articleTitleTextView =
+                    (TextView) articleListItemView.findViewById(R.id.title_text_view);
+            articleTypeTextView =
+                    (TextView) articleListItemView.findViewById(R.id.type_text_view);
+            articleDateTextView =
+                    (TextView) articleListItemView.findViewById(R.id.date_text_view);
+            articleTrailTextView =
+                    (TextView) articleListItemView.findViewById(R.id.trail_text_view);
+            articleThumbnailImageView =
+                    (ImageView) articleListItemView.findViewById(R.id.thumbnail_image_view);
+            articleListItemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && mClickListener != null) {
+                mClickListener.onArticleClick(mArticles.get(position));
+            }
+        }
     }
 
-    // This method formats a date String (i.e. "Aug 6, 1981") from a Date object
-    private String formatDate(Date dateObject) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
-        return dateFormat.format(dateObject);
+    // {@link DiffUtil.Callback} comparing two lists of articles, an article is identified by its
+    // URL
+    private static class ArticleDiffCallback extends DiffUtil.Callback {
+        private final List<Article> mOldArticles;
+        private final List<Article> mNewArticles;
+
+        ArticleDiffCallback(List<Article> oldArticles, List<Article> newArticles) {
+            mOldArticles = oldArticles;
+            mNewArticles = newArticles;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldArticles.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewArticles.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return equal(mOldArticles.get(oldItemPosition).getUrl(),
+                    mNewArticles.get(newItemPosition).getUrl());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            Article oldArticle = mOldArticles.get(oldItemPosition);
+            Article newArticle = mNewArticles.get(newItemPosition);
+            return equal(oldArticle.getTitle(), newArticle.getTitle())
+                    && equal(oldArticle.getSection(), newArticle.getSection())
+                    && equal(oldArticle.getType(), newArticle.getType())
+                    && equal(oldArticle.getDisplayDate(), newArticle.getDisplayDate())
+                    && equal(oldArticle.getThumbnailUrl(), newArticle.getThumbnailUrl())
+                    && equal(oldArticle.getTrailText(), newArticle.getTrailText());
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
     }
 }
@@ -0,0 +1,155 @@
+package com.example.android.newsapp;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Memory cache of the parsed articles of recently loaded pages, keyed by the cache key of their
+ * query, so switching back to a query shows its articles without reading the store or asking the
+ * server. Every entry expires after its own time to live.
+ *
+ * The cache is bounded by the estimated heap size of the articles rather than by the number of
+ * pages, a fraction of the memory class of the app, and gives memory back when the system asks
+ * for it through {@link #onTrimMemory}. Hits, misses, expirations and evictions are counted in
+ * {@link NewsMetrics}.
+ */
+
+public class ArticleCache extends LruCache<String, ArticleCache.Entry> {
+
+    // The cache gets this fraction of the memory class of the app, the thumbnails get an eighth
+    private static final int MEMORY_CACHE_DIVISOR = 32;
+
+    // Estimated heap size of the list, of an Article object and of a String without its content
+    private static final int LIST_OVERHEAD_BYTES = 40;
+    private static final int ARTICLE_OVERHEAD_BYTES = 48;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private static ArticleCache sInstance;
+
+    /**
+     * The articles of a page and the time they expire at
+     */
+    static class Entry {
+        final List<Article> articles;
+        final long expiresAt;
+        final int sizeBytes;
+
+        Entry(List<Article> articles, long expiresAt) {
+            this.articles = articles;
+            this.expiresAt = expiresAt;
+            this.sizeBytes = estimateSize(articles);
+        }
+    }
+
+    private ArticleCache(int maxSizeBytes) {
+        super(maxSizeBytes);
+    }
+
+    /**
+     * Return the single {@link ArticleCache} of the app
+     * @param context of the app
+     * @return ArticleCache
+     */
+    public static synchronized ArticleCache getInstance(Context context) {
+        if (sInstance == null) {
+            ActivityManager activityManager =
+                    (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            sInstance = new ArticleCache(
+                    activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CACHE_DIVISOR);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the cached articles of the given query, unless they expired
+     * @param key is the cache key of the query
+     * @return unmodifiable List<Article>, or null if the cache holds nothing current for the query
+     */
+    public List<Article> getArticles(String key) {
+        Entry entry = get(key);
+        if (entry == null) {
+            NewsMetrics.increment(NewsMetrics.COUNTER_CACHE_MISSES);
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() >= entry.expiresAt) {
+            remove(key);
+            NewsMetrics.increment(NewsMetrics.COUNTER_CACHE_EXPIRED);
+            return null;
+        }
+        NewsMetrics.increment(NewsMetrics.COUNTER_CACHE_HITS);
+        return entry.articles;
+    }
+
+    /**
+     * Cache the articles of the given query
+     * @param key is the cache key of the query
+     * @param articles is the list of articles, it is copied
+     * @param ttlMillis is how long the articles may be shown without checking the store, nothing
+     *                  is cached if it is not positive
+     */
+    public void putArticles(String key, List<Article> articles, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            remove(key);
+            return;
+        }
+        put(key, new Entry(Collections.unmodifiableList(new ArrayList<>(articles)),
+                SystemClock.elapsedRealtime() + ttlMillis));
+    }
+
+    /**
+     * Give memory back at the request of the system: half of the cache while the app is
+     * running and memory is getting low or the app is in the background, all of it once the app
+     * is next in line to be killed
+     * @param level is the level passed to ComponentCallbacks2.onTrimMemory
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(maxSize() / 2);
+        }
+    }
+
+    @Override
+    protected int sizeOf(String key, Entry entry) {
+        return entry.sizeBytes;
+    }
+
+    @Override
+    protected void entryRemoved(boolean evicted, String key, Entry oldEntry, Entry newEntry) {
+        if (evicted) {
+            NewsMetrics.increment(NewsMetrics.COUNTER_CACHE_EVICTIONS);
+        }
+    }
+
+    /**
+     * Estimate the heap size of a list of articles. The sections, types and display dates are
+     * shared through the {@link StringPool}, so only the Strings owned by every article count.
+     * @param articles is the list of articles
+     * @return estimated size in bytes
+     */
+    static int estimateSize(List<Article> articles) {
+        int size = LIST_OVERHEAD_BYTES + 4 * articles.size();
+        for (Article article : articles) {
+            size += ARTICLE_OVERHEAD_BYTES
+                    + stringSize(article.getTitle())
+                    + stringSize(article.getUrl())
+                    + stringSize(article.getThumbnailUrl())
+                    + stringSize(article.getTrailText());
+        }
+        return size;
+    }
+
+    private static int stringSize(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + 2 * value.length();
+    }
+}
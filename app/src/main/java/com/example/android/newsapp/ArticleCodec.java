@@ -0,0 +1,219 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a list of {@link Article} objects, used to keep the loaded articles in
+ * the saved instance state. The sections and types are written once into a dictionary and every
+ * article refers to them by index, the publication date is written as a long and formatted again
+ * when the articles are read back.
+ *
+ * Layout: version, dictionary size, dictionary Strings, article count, then for every article the
+ * section index, type index, title, url, publication time, thumbnail url and trail text. A String
+ * is written as its UTF-8 length followed by its UTF-8 bytes, so unlike writeUTF it has no 64 KB
+ * limit. A null section or type is written as index -1, any other null String as length -1.
+ */
+
+public final class ArticleCodec {
+
+    // Incremented whenever the layout changes, older data is then rejected
+    private static final int VERSION = 3;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Length written for a null String
+    private static final int NULL_LENGTH = -1;
+
+    // Limits of the counts read back, larger ones can only come from corrupt data
+    private static final int MAX_DICTIONARY_SIZE = 64 * 1024;
+    private static final int MAX_ARTICLE_COUNT = 1024 * 1024;
+
+    // Only this many articles, and this many bytes of a String, are allocated before they are
+    // actually read, so a corrupt count or length fails once the data runs out instead of
+    // allocating all of it up front
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+    private static final int STRING_CHUNK_SIZE = 64 * 1024;
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private ArticleCodec() {
+    }
+
+    /**
+     * Encode a list of articles into a byte array
+     * @param articles is the list of articles
+     * @return encoded articles
+     */
+    public static byte[] encode(List<Article> articles) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + articles.size() * 160);
+        try {
+            write(articles, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            // A ByteArrayOutputStream never throws
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a list of articles encoded by {@link #encode}
+     * @param encoded is the encoded articles
+     * @return ArrayList<Article>
+     * @throws IOException if the data is truncated, corrupt or was written by another version
+     */
+    public static ArrayList<Article> decode(byte[] encoded) throws IOException {
+        return read(new DataInputStream(new ByteArrayInputStream(encoded)));
+    }
+
+    /**
+     * Write a list of articles
+     * @param articles is the list of articles
+     * @param out is where the articles are written
+     * @throws IOException if writing fails
+     */
+    public static void write(List<Article> articles, DataOutput out) throws IOException {
+        // Collect the distinct sections and types, in order of first use
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (Article article : articles) {
+            addToDictionary(article.getSection(), indexes, dictionary);
+            addToDictionary(article.getType(), indexes, dictionary);
+        }
+
+        out.writeInt(VERSION);
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            writeString(value, out);
+        }
+
+        out.writeInt(articles.size());
+        for (Article article : articles) {
+            out.writeInt(indexOf(article.getSection(), indexes));
+            out.writeInt(indexOf(article.getType(), indexes));
+            writeString(article.getTitle(), out);
+            writeString(article.getUrl(), out);
+            out.writeLong(article.getTimeInMillis());
+            writeString(article.getThumbnailUrl(), out);
+            writeString(article.getTrailText(), out);
+        }
+    }
+
+    /**
+     * Read a list of articles written by {@link #write}
+     * @param in is where the articles are read from
+     * @return ArrayList<Article>
+     * @throws IOException if the data is truncated, corrupt or was written by another version
+     */
+    public static ArrayList<Article> read(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+
+        String[] dictionary = new String[readCount(in, MAX_DICTIONARY_SIZE, "dictionary size")];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(in);
+        }
+
+        int count = readCount(in, MAX_ARTICLE_COUNT, "article count");
+        ArrayList<Article> articles = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+        PublicationDateParser dateParser = new PublicationDateParser();
+        for (int i = 0; i < count; i++) {
+            String section = fromDictionary(in.readInt(), dictionary);
+            String type = fromDictionary(in.readInt(), dictionary);
+            String title = readString(in);
+            String url = readString(in);
+            long timeInMillis = in.readLong();
+            String thumbnailUrl = readString(in);
+            String trailText = readString(in);
+            articles.add(dateParser.createArticle(section, title, type, timeInMillis, url,
+                    thumbnailUrl, trailText));
+        }
+        return articles;
+    }
+
+    /**
+     * Read a count, checking it is in range
+     * @param in is where the count is read from
+     * @param max is the largest valid count
+     * @param name is the name of the count, for the error message
+     * @return the count
+     * @throws IOException if the count is negative or larger than max
+     */
+    private static int readCount(DataInput in, int max, String name) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException("Invalid " + name + " " + count);
+        }
+        return count;
+    }
+
+    private static void addToDictionary(String value, Map<String, Integer> indexes,
+                                        List<String> dictionary) {
+        if (value != null && !indexes.containsKey(value)) {
+            indexes.put(value, dictionary.size());
+            dictionary.add(value);
+        }
+    }
+
+    private static int indexOf(String value, Map<String, Integer> indexes) {
+        return value == null ? -1 : indexes.get(value);
+    }
+
+    private static String fromDictionary(int index, String[] dictionary) throws IOException {
+        if (index == -1) {
+            return null;
+        }
+        if (index < 0 || index >= dictionary.length) {
+            throw new IOException("Invalid dictionary index " + index);
+        }
+        return dictionary[index];
+    }
+
+    private static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length);
+        }
+        if (length <= STRING_CHUNK_SIZE) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, UTF_8);
+        }
+
+        // A long String, read it a chunk at a time
+        byte[] chunk = new byte[STRING_CHUNK_SIZE];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(STRING_CHUNK_SIZE * 2);
+        int remaining = length;
+        while (remaining > 0) {
+            int count = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, count);
+            bytes.write(chunk, 0, count);
+            remaining -= count;
+        }
+        return bytes.toString("UTF-8");
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.android.newsapp;
+
+import android.provider.BaseColumns;
+
+/**
+ * Contract for the on-disk article store, holds the table and column names used by
+ * {@link ArticleDbHelper} and {@link ArticleStore}
+ */
+
+public final class ArticleContract {
+
+    // This class is only meant to hold constants, an object instance is not needed
+    private ArticleContract() {
+    }
+
+    /**
+     * One row for every query URL the store holds articles for. Used for the TTL and the LRU
+     * bookkeeping.
+     */
+    public static final class QueryEntry implements BaseColumns {
+        public static final String TABLE_NAME = "queries";
+
+        // The query URL String the articles were fetched with, unique per row
+        public static final String COLUMN_QUERY_URL = "query_url";
+
+        // Time in milliseconds the articles for this query were last fetched from the server
+        public static final String COLUMN_FETCHED_AT = "fetched_at";
+
+        // Time in milliseconds the articles for this query were last read from the store
+        public static final String COLUMN_LAST_ACCESSED = "last_accessed";
+
+        // ETag and Last-Modified headers of the last response, sent back to revalidate the query
+        public static final String COLUMN_ETAG = "etag";
+        public static final String COLUMN_LAST_MODIFIED = "last_modified";
+    }
+
+    /**
+     * One row for every article of a query, in the order the server returned them
+     */
+    public static final class ArticleEntry implements BaseColumns {
+        public static final String TABLE_NAME = "articles";
+
+        public static final String COLUMN_QUERY_URL = "query_url";
+        public static final String COLUMN_POSITION = "position";
+        public static final String COLUMN_SECTION = "section";
+        public static final String COLUMN_TITLE = "title";
+        public static final String COLUMN_TYPE = "type";
+        // Publication date in milliseconds since the epoch, or -1 if it is unknown
+        public static final String COLUMN_TIME = "time_in_millis";
+        public static final String COLUMN_URL = "url";
+
+        // Url of the thumbnail image and plain text summary, both may be null
+        public static final String COLUMN_THUMBNAIL = "thumbnail";
+        public static final String COLUMN_TRAIL_TEXT = "trail_text";
+    }
+}
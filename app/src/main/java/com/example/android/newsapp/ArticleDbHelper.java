@@ -0,0 +1,69 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.android.newsapp.ArticleContract.ArticleEntry;
+import com.example.android.newsapp.ArticleContract.QueryEntry;
+
+/**
+ * Database helper for the on-disk article store, manages creation and version management
+ */
+
+public class ArticleDbHelper extends SQLiteOpenHelper {
+
+    // Name of the database file
+    private static final String DATABASE_NAME = "articles.db";
+
+    // Database version, if the schema changes the version must be incremented
+    private static final int DATABASE_VERSION = 5;
+
+    /**
+     * Constructs a new {@link ArticleDbHelper}
+     * @param context of the app
+     */
+    public ArticleDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        String SQL_CREATE_QUERIES_TABLE = "CREATE TABLE " + QueryEntry.TABLE_NAME + " ("
+                + QueryEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + QueryEntry.COLUMN_QUERY_URL + " TEXT NOT NULL UNIQUE, "
+                + QueryEntry.COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + QueryEntry.COLUMN_LAST_ACCESSED + " INTEGER NOT NULL, "
+                + QueryEntry.COLUMN_ETAG + " TEXT, "
+                + QueryEntry.COLUMN_LAST_MODIFIED + " TEXT);";
+
+        String SQL_CREATE_ARTICLES_TABLE = "CREATE TABLE " + ArticleEntry.TABLE_NAME + " ("
+                + ArticleEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + ArticleEntry.COLUMN_QUERY_URL + " TEXT NOT NULL, "
+                + ArticleEntry.COLUMN_POSITION + " INTEGER NOT NULL, "
+                + ArticleEntry.COLUMN_SECTION + " TEXT, "
+                + ArticleEntry.COLUMN_TITLE + " TEXT, "
+                + ArticleEntry.COLUMN_TYPE + " TEXT, "
+                + ArticleEntry.COLUMN_TIME + " INTEGER NOT NULL, "
+                + ArticleEntry.COLUMN_URL + " TEXT, "
+                + ArticleEntry.COLUMN_THUMBNAIL + " TEXT, "
+                + ArticleEntry.COLUMN_TRAIL_TEXT + " TEXT);";
+
+        // Articles are always read and deleted by their query
+        String SQL_CREATE_ARTICLES_INDEX = "CREATE INDEX articles_query_index ON "
+                + ArticleEntry.TABLE_NAME + " (" + ArticleEntry.COLUMN_QUERY_URL + ", "
+                + ArticleEntry.COLUMN_POSITION + ");";
+
+        db.execSQL(SQL_CREATE_QUERIES_TABLE);
+        db.execSQL(SQL_CREATE_ARTICLES_TABLE);
+        db.execSQL(SQL_CREATE_ARTICLES_INDEX);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The store only holds a cache of server data, so it is simply rebuilt
+        db.execSQL("DROP TABLE IF EXISTS " + ArticleEntry.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + QueryEntry.TABLE_NAME);
+        onCreate(db);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over the titles and sections of every article the app has seen, so a
+ * search can be answered on the device before the server answers it. Articles are added as
+ * responses are parsed and as stored articles are read, an article is identified by its URL.
+ *
+ * Every article gets an increasing document id, and every token maps to the sorted ids of the
+ * articles containing it. A search matches the articles containing all of its tokens, the last
+ * token also matching as a prefix so results show up while the user is still typing.
+ */
+
+public class ArticleIndex {
+
+    // Tokens shorter than this are not indexed, they would match nearly everything
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    // The index is rebuilt without the replaced articles once they outnumber the live ones
+    private static final int MIN_COMPACT_SIZE = 256;
+
+    private static final ArticleIndex sInstance = new ArticleIndex();
+
+    // Articles by document id, null for the ids of replaced articles
+    private final ArrayList<Article> mDocuments = new ArrayList<>();
+
+    // Live document id by article URL
+    private final Map<String, Integer> mIdByUrl = new HashMap<>();
+
+    // Sorted document ids by token, sorted by token for the prefix lookups
+    private final TreeMap<String, Postings> mPostings = new TreeMap<>();
+
+    // Newest articles first, articles with an unknown date last
+    private static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article a, Article b) {
+            long timeA = a.getTimeInMillis();
+            long timeB = b.getTimeInMillis();
+            return timeA < timeB ? 1 : (timeA == timeB ? 0 : -1);
+        }
+    };
+
+    // Return the single {@link ArticleIndex} of the process
+    public static ArticleIndex getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Add articles to the index. An article already indexed under the same URL is replaced if its
+     * title or section changed, and left alone otherwise.
+     * @param articles is the articles to add, articles without a URL are skipped
+     */
+    public synchronized void addAll(Collection<Article> articles) {
+        for (Article article : articles) {
+            add(article);
+        }
+        if (mDocuments.size() >= MIN_COMPACT_SIZE
+                && mDocuments.size() > 2 * mIdByUrl.size()) {
+            compact();
+        }
+    }
+
+    // Return the number of articles in the index
+    public synchronized int size() {
+        return mIdByUrl.size();
+    }
+
+    /**
+     * Search the index
+     * @param query is the words to search for, as typed by the user
+     * @return List<Article> containing all of the words, newest first, empty if nothing matches
+     */
+    public synchronized List<Article> search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Intersect the ids of the complete tokens, then of the last token as a prefix
+        int[] ids = null;
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            Postings postings = mPostings.get(tokens.get(i));
+            if (postings == null) {
+                return new ArrayList<>();
+            }
+            ids = ids == null ? postings.toArray() : intersect(ids, postings.toArray());
+        }
+        int[] prefixIds = prefixIds(tokens.get(tokens.size() - 1));
+        ids = ids == null ? prefixIds : intersect(ids, prefixIds);
+
+        List<Article> results = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Article article = mDocuments.get(id);
+            if (article != null) {
+                results.add(article);
+            }
+        }
+        Collections.sort(results, NEWEST_FIRST);
+        return results;
+    }
+
+    // Index a single article, the caller holds the lock
+    private void add(Article article) {
+        String url = article.getUrl();
+        if (url == null) {
+            return;
+        }
+
+        Integer oldId = mIdByUrl.get(url);
+        if (oldId != null) {
+            Article old = mDocuments.get(oldId);
+            if (equal(old.getTitle(), article.getTitle())
+                    && equal(old.getSection(), article.getSection())) {
+                // Same text, keep the ids but show the latest copy
+                mDocuments.set(oldId, article);
+                return;
+            }
+            // The text changed, drop the old document, its ids are skipped from now on
+            mDocuments.set(oldId, null);
+        }
+
+        int id = mDocuments.size();
+        mDocuments.add(article);
+        mIdByUrl.put(url, id);
+
+        List<String> tokens = tokenize(article.getTitle());
+        tokens.addAll(tokenize(article.getSection()));
+        for (String token : tokens) {
+            Postings postings = mPostings.get(token);
+            if (postings == null) {
+                postings = new Postings();
+                mPostings.put(token, postings);
+            }
+            postings.add(id);
+        }
+    }
+
+    // Rebuild the index from the live articles only, the caller holds the lock
+    private void compact() {
+        List<Article> live = new ArrayList<>(mIdByUrl.size());
+        for (Article article : mDocuments) {
+            if (article != null) {
+                live.add(article);
+            }
+        }
+        mDocuments.clear();
+        mIdByUrl.clear();
+        mPostings.clear();
+        for (Article article : live) {
+            add(article);
+        }
+    }
+
+    // Return the sorted ids of the articles having a token starting with the given prefix
+    private int[] prefixIds(String prefix) {
+        SortedMap<String, Postings> matches =
+                mPostings.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (matches.size() == 1) {
+            return matches.values().iterator().next().toArray();
+        }
+
+        // Several tokens match, merge their ids into one sorted array without duplicates
+        int total = 0;
+        for (Postings postings : matches.values()) {
+            total += postings.mSize;
+        }
+        int[] ids = new int[total];
+        int offset = 0;
+        for (Postings postings : matches.values()) {
+            System.arraycopy(postings.mIds, 0, ids, offset, postings.mSize);
+            offset += postings.mSize;
+        }
+        Arrays.sort(ids);
+        int unique = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (unique == 0 || ids[i] != ids[unique - 1]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    // Return the ids found in both sorted arrays
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Split a text into lower case tokens of letters and digits
+     * @param text is the text to split, may be null
+     * @return List<String> of the tokens of at least MIN_TOKEN_LENGTH characters, in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lowerCase = text.toLowerCase(Locale.US);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean isTokenChar = i < lowerCase.length()
+                    && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (isTokenChar && start == -1) {
+                start = i;
+            } else if (!isTokenChar && start != -1) {
+                if (i - start >= MIN_TOKEN_LENGTH) {
+                    tokens.add(lowerCase.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    // Growable sorted array of document ids, ids are always added in increasing order
+    private static class Postings {
+        int[] mIds = new int[4];
+        int mSize;
+
+        void add(int id) {
+            // A token repeated in the same article is only recorded once
+            if (mSize > 0 && mIds[mSize - 1] == id) {
+                return;
+            }
+            if (mSize == mIds.length) {
+                mIds = Arrays.copyOf(mIds, mSize * 2);
+            }
+            mIds[mSize++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(mIds, mSize);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.android.newsapp;
+
+/**
+ * A feed of articles that {@link FetchEngine} can fetch and merge with others. Every source
+ * normalizes whatever it reads into {@link Article} objects, so the engine does not depend on the
+ * endpoint or the response format behind it.
+ */
+
+public interface ArticleSource {
+
+    /**
+     * Return the key identifying the articles of the source, like the cache key of a query
+     * @return key String
+     */
+    String getKey();
+
+    /**
+     * Return the host the source fetches from, the engine limits the concurrent requests to it
+     * @return host name, or null if the source does not use the network
+     */
+    String getHost();
+
+    /**
+     * Fetch the articles of the source. Called on a thread of the engine, so this may block.
+     * @return FetchResult whose articles are null if the fetch failed
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    FetchResult fetch() throws InterruptedException;
+}
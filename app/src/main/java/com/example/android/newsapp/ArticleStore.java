@@ -0,0 +1,475 @@
+package com.example.android.newsapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.example.android.newsapp.ArticleContract.ArticleEntry;
+import com.example.android.newsapp.ArticleContract.QueryEntry;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent on-disk store of {@link Article} objects keyed by the query URL they were fetched
+ * with. Entries are fresh for {@link #FRESH_TTL_MILLIS}, are removed entirely after
+ * {@link #MAX_AGE_MILLIS}, and the least recently read queries are evicted once the store holds
+ * more than {@link #MAX_ARTICLES} articles.
+ *
+ * The whole store can be exported to a {@link StoreSnapshot} and imported again, so devices can
+ * start with a pre-seeded feed. A snapshot named {@link #SEED_FILE_NAME} in the assets of the APK
+ * is imported the first time the store is opened after the app is installed. A snapshot of the
+ * same name pushed to the app's files directory of a provisioned device is imported the next time
+ * the store is opened and then deleted, this only works with a debuggable build.
+ */
+
+public class ArticleStore {
+
+    // Stored articles younger than this are shown without asking the server again
+    public static final long FRESH_TTL_MILLIS = 15 * 60 * 1000L;
+
+    // Stored articles older than this are deleted, they are too old to show even when offline
+    public static final long MAX_AGE_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+    // Maximum number of articles kept across all queries
+    public static final int MAX_ARTICLES = 1000;
+
+    // Name of the snapshot imported when the store is first opened, in the assets of the APK or in
+    // the app's files directory
+    public static final String SEED_FILE_NAME = "articles.seed";
+
+    // Name and key of the SharedPreferences recording that the seed asset was imported, an asset
+    // cannot be deleted like the seed file
+    private static final String PREFS_STORE = "article_store";
+    private static final String KEY_SEED_ASSET_IMPORTED = "seed_asset_imported";
+
+    // Tag for the log messages
+    private static final String LOG_TAG = ArticleStore.class.getSimpleName();
+
+    private static ArticleStore sInstance;
+
+    private final ArticleDbHelper mDbHelper;
+
+    // Only the tests create a store of their own, the app uses getInstance
+    ArticleStore(Context context) {
+        mDbHelper = new ArticleDbHelper(context);
+    }
+
+    /**
+     * Return the single {@link ArticleStore} of the app. The first call imports the seed
+     * snapshots if there are any, callers on other threads wait for it rather than going to the
+     * network for articles that are about to be stored.
+     * @param context of the app
+     * @return ArticleStore
+     */
+    public static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleStore(context.getApplicationContext());
+            sInstance.importSeedAsset(context);
+            sInstance.importSeed(new File(context.getFilesDir(), SEED_FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    // Import the seed snapshot of the APK, if there is one and it was not imported yet
+    private void importSeedAsset(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_STORE, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(KEY_SEED_ASSET_IMPORTED, false)) {
+            return;
+        }
+        InputStream inputStream;
+        try {
+            inputStream = context.getAssets().open(SEED_FILE_NAME);
+        } catch (FileNotFoundException e) {
+            // This build is not seeded
+            return;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error opening the seed asset", e);
+            return;
+        }
+        try {
+            long start = NewsMetrics.start();
+            int count = importEntries(StoreSnapshot.read(
+                    new DataInputStream(new BufferedInputStream(inputStream))));
+            NewsMetrics.stop(NewsMetrics.TIMER_STORE_IMPORT, start);
+            Log.i(LOG_TAG, "Imported " + count + " queries from the seed asset");
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error importing the seed asset", e);
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error closing the seed asset", e);
+            }
+        }
+        // A corrupt asset is not tried again either, it will not get any better
+        prefs.edit().putBoolean(KEY_SEED_ASSET_IMPORTED, true).apply();
+    }
+
+    // Import the seed snapshot, if there is one, and delete it so it is only imported once
+    private void importSeed(File seedFile) {
+        if (!seedFile.exists()) {
+            return;
+        }
+        try {
+            int count = importFrom(seedFile);
+            Log.i(LOG_TAG, "Imported " + count + " queries from " + seedFile);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error importing " + seedFile, e);
+        }
+        if (!seedFile.delete()) {
+            Log.e(LOG_TAG, "Could not delete " + seedFile);
+        }
+    }
+
+    /**
+     * Return the time the articles for the given query were last fetched from the server
+     * @param queryUrl is the query URL String the articles were fetched with
+     * @return time in milliseconds, or -1 if the store holds nothing for the query
+     */
+    public long getFetchedAt(String queryUrl) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Cursor cursor = db.query(QueryEntry.TABLE_NAME,
+                new String[]{QueryEntry.COLUMN_FETCHED_AT},
+                QueryEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl},
+                null, null, null);
+        try {
+            if (cursor.moveToFirst()) {
+                return cursor.getLong(0);
+            }
+            return -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Check whether the articles for the given query are young enough to skip the network
+     * @param queryUrl is the query URL String the articles were fetched with
+     * @return true if the store holds articles fetched within {@link #FRESH_TTL_MILLIS}
+     */
+    public boolean isFresh(String queryUrl) {
+        long fetchedAt = getFetchedAt(queryUrl);
+        return fetchedAt != -1 && System.currentTimeMillis() - fetchedAt < FRESH_TTL_MILLIS;
+    }
+
+    /**
+     * Return the ETag header the server sent with the stored articles for the given query
+     * @param queryUrl is the query URL String the articles were fetched with
+     * @return ETag String, or null if there is none
+     */
+    public String getETag(String queryUrl) {
+        return getQueryString(queryUrl, QueryEntry.COLUMN_ETAG);
+    }
+
+    /**
+     * Return the Last-Modified header the server sent with the stored articles for the given query
+     * @param queryUrl is the query URL String the articles were fetched with
+     * @return Last-Modified String, or null if there is none
+     */
+    public String getLastModified(String queryUrl) {
+        return getQueryString(queryUrl, QueryEntry.COLUMN_LAST_MODIFIED);
+    }
+
+    // Read a single String column of the row for the given query
+    private String getQueryString(String queryUrl, String column) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Cursor cursor = db.query(QueryEntry.TABLE_NAME, new String[]{column},
+                QueryEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl},
+                null, null, null);
+        try {
+            if (cursor.moveToFirst()) {
+                return cursor.getString(0);
+            }
+            return null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Mark the stored articles for the given query as just fetched, used when the server confirmed
+     * they are unchanged
+     * @param queryUrl is the query URL String the articles were fetched with
+     */
+    public void markFetched(String queryUrl) {
+        long now = System.currentTimeMillis();
+        ContentValues values = new ContentValues();
+        values.put(QueryEntry.COLUMN_FETCHED_AT, now);
+        values.put(QueryEntry.COLUMN_LAST_ACCESSED, now);
+        mDbHelper.getWritableDatabase().update(QueryEntry.TABLE_NAME, values,
+                QueryEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl});
+    }
+
+    /**
+     * Return the stored articles for the given query and mark the query as recently used
+     * @param queryUrl is the query URL String the articles were fetched with
+     * @return ArrayList<Article> in the order the server returned them, or null if the store holds
+     * nothing for the query
+     */
+    public ArrayList<Article> getArticles(String queryUrl) {
+        if (getFetchedAt(queryUrl) == -1) {
+            return null;
+        }
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+
+        // Mark the query as recently used for the LRU eviction
+        ContentValues values = new ContentValues();
+        values.put(QueryEntry.COLUMN_LAST_ACCESSED, System.currentTimeMillis());
+        db.update(QueryEntry.TABLE_NAME, values,
+                QueryEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl});
+
+        ArrayList<Article> articles = readArticles(db, queryUrl);
+
+        // Articles stored by an earlier run of the app become searchable once they are read
+        ArticleIndex.getInstance().addAll(articles);
+        return articles;
+    }
+
+    /**
+     * Replace the stored articles for the given query, then expire and evict old entries
+     * @param queryUrl is the query URL String the articles were fetched with
+     * @param articles is the list of articles returned by the server
+     */
+    public void putArticles(String queryUrl, List<Article> articles) {
+        putArticles(queryUrl, articles, null, null);
+    }
+
+    /**
+     * Replace the stored articles for the given query along with the cache validators of the
+     * response, then expire and evict old entries
+     * @param queryUrl is the query URL String the articles were fetched with
+     * @param articles is the list of articles returned by the server
+     * @param eTag is the ETag header of the response, may be null
+     * @param lastModified is the Last-Modified header of the response, may be null
+     */
+    public void putArticles(String queryUrl, List<Article> articles, String eTag,
+                            String lastModified) {
+        putArticles(queryUrl, articles, eTag, lastModified, System.currentTimeMillis());
+    }
+
+    // Replace the stored articles for the given query as fetched at the given time
+    private void putArticles(String queryUrl, List<Article> articles, String eTag,
+                             String lastModified, long fetchedAt) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        long now = System.currentTimeMillis();
+
+        db.beginTransaction();
+        try {
+            db.delete(ArticleEntry.TABLE_NAME,
+                    ArticleEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl});
+
+            ContentValues queryValues = new ContentValues();
+            queryValues.put(QueryEntry.COLUMN_QUERY_URL, queryUrl);
+            queryValues.put(QueryEntry.COLUMN_FETCHED_AT, fetchedAt);
+            queryValues.put(QueryEntry.COLUMN_LAST_ACCESSED, now);
+            queryValues.put(QueryEntry.COLUMN_ETAG, eTag);
+            queryValues.put(QueryEntry.COLUMN_LAST_MODIFIED, lastModified);
+            db.insertWithOnConflict(QueryEntry.TABLE_NAME, null, queryValues,
+                    SQLiteDatabase.CONFLICT_REPLACE);
+
+            // Reuse one compiled statement for all of the rows
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + ArticleEntry.TABLE_NAME
+                    + " (" + ArticleEntry.COLUMN_QUERY_URL + ", "
+                    + ArticleEntry.COLUMN_POSITION + ", "
+                    + ArticleEntry.COLUMN_SECTION + ", "
+                    + ArticleEntry.COLUMN_TITLE + ", "
+                    + ArticleEntry.COLUMN_TYPE + ", "
+                    + ArticleEntry.COLUMN_TIME + ", "
+                    + ArticleEntry.COLUMN_URL + ", "
+                    + ArticleEntry.COLUMN_THUMBNAIL + ", "
+                    + ArticleEntry.COLUMN_TRAIL_TEXT + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            try {
+                for (int i = 0; i < articles.size(); i++) {
+                    Article article = articles.get(i);
+                    insert.clearBindings();
+                    insert.bindString(1, queryUrl);
+                    insert.bindLong(2, i);
+                    bindStringOrNull(insert, 3, article.getSection());
+                    bindStringOrNull(insert, 4, article.getTitle());
+                    bindStringOrNull(insert, 5, article.getType());
+                    insert.bindLong(6, article.getTimeInMillis());
+                    bindStringOrNull(insert, 7, article.getUrl());
+                    bindStringOrNull(insert, 8, article.getThumbnailUrl());
+                    bindStringOrNull(insert, 9, article.getTrailText());
+                    insert.executeInsert();
+                }
+            } finally {
+                insert.close();
+            }
+
+            trim(db, now);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Write every stored query and its articles to a {@link StoreSnapshot} file
+     * @param file is the file to write, it is replaced if it exists
+     * @return the number of queries written
+     * @throws IOException if the file could not be written
+     */
+    public int exportTo(File file) throws IOException {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        List<StoreSnapshot.Entry> entries = new ArrayList<>();
+
+        // Read every query inside one transaction so the snapshot is consistent
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(QueryEntry.TABLE_NAME, new String[]{
+                            QueryEntry.COLUMN_QUERY_URL,
+                            QueryEntry.COLUMN_FETCHED_AT,
+                            QueryEntry.COLUMN_ETAG,
+                            QueryEntry.COLUMN_LAST_MODIFIED},
+                    null, null, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    String queryUrl = cursor.getString(0);
+                    entries.add(new StoreSnapshot.Entry(queryUrl, cursor.getLong(1),
+                            cursor.getString(2), cursor.getString(3),
+                            readArticles(db, queryUrl)));
+                }
+            } finally {
+                cursor.close();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        StoreSnapshot.write(entries, file);
+        return entries.size();
+    }
+
+    /**
+     * Store the queries of a {@link StoreSnapshot} file. The articles keep the time they were
+     * fetched at, so old ones are refreshed as usual, and a query is skipped if the store already
+     * holds articles fetched at the same time or later. Articles fetched before the fresh period
+     * are stored as fetched just before it, so a seed older than {@link #MAX_AGE_MILLIS} is not
+     * expired right away.
+     * @param file is the snapshot file
+     * @return the number of queries stored
+     * @throws IOException if the file could not be read or is not a snapshot
+     */
+    public int importFrom(File file) throws IOException {
+        long start = NewsMetrics.start();
+        int count = importEntries(StoreSnapshot.read(file));
+        NewsMetrics.stop(NewsMetrics.TIMER_STORE_IMPORT, start);
+        return count;
+    }
+
+    // Store the given snapshot entries, return the number of queries stored
+    private int importEntries(List<StoreSnapshot.Entry> entries) {
+        // Stale but young enough to survive trim, they are refreshed the first time they are shown
+        long staleFetchedAt = System.currentTimeMillis() - FRESH_TTL_MILLIS;
+        int count = 0;
+        for (StoreSnapshot.Entry entry : entries) {
+            if (getFetchedAt(entry.getCacheKey()) >= entry.getFetchedAt()) {
+                continue;
+            }
+            putArticles(entry.getCacheKey(), entry.getArticles(), entry.getETag(),
+                    entry.getLastModified(), Math.max(entry.getFetchedAt(), staleFetchedAt));
+            count++;
+        }
+        return count;
+    }
+
+    // Delete the queries older than MAX_AGE_MILLIS, then the least recently read queries until
+    // the store holds at most MAX_ARTICLES articles
+    private void trim(SQLiteDatabase db, long now) {
+        Cursor expired = db.query(QueryEntry.TABLE_NAME,
+                new String[]{QueryEntry.COLUMN_QUERY_URL},
+                QueryEntry.COLUMN_FETCHED_AT + "<?",
+                new String[]{String.valueOf(now - MAX_AGE_MILLIS)},
+                null, null, null);
+        try {
+            while (expired.moveToNext()) {
+                deleteQuery(db, expired.getString(0));
+            }
+        } finally {
+            expired.close();
+        }
+
+        long articleCount = DatabaseUtils.queryNumEntries(db, ArticleEntry.TABLE_NAME);
+        if (articleCount <= MAX_ARTICLES) {
+            return;
+        }
+
+        // Walk the queries from least to most recently read, keeping the most recent one even if
+        // it alone is over the cap
+        Cursor lru = db.query(QueryEntry.TABLE_NAME,
+                new String[]{QueryEntry.COLUMN_QUERY_URL},
+                null, null, null, null, QueryEntry.COLUMN_LAST_ACCESSED);
+        try {
+            int remaining = lru.getCount();
+            while (articleCount > MAX_ARTICLES && remaining > 1 && lru.moveToNext()) {
+                String queryUrl = lru.getString(0);
+                articleCount -= DatabaseUtils.queryNumEntries(db, ArticleEntry.TABLE_NAME,
+                        ArticleEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl});
+                deleteQuery(db, queryUrl);
+                remaining--;
+            }
+        } finally {
+            lru.close();
+        }
+    }
+
+    // Delete a query and all of its articles
+    private void deleteQuery(SQLiteDatabase db, String queryUrl) {
+        db.delete(ArticleEntry.TABLE_NAME,
+                ArticleEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl});
+        db.delete(QueryEntry.TABLE_NAME,
+                QueryEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl});
+    }
+
+    // Read the articles of a query in the order the server returned them
+    private static ArrayList<Article> readArticles(SQLiteDatabase db, String queryUrl) {
+        String[] projection = {
+                ArticleEntry.COLUMN_SECTION,
+                ArticleEntry.COLUMN_TITLE,
+                ArticleEntry.COLUMN_TYPE,
+                ArticleEntry.COLUMN_TIME,
+                ArticleEntry.COLUMN_URL,
+                ArticleEntry.COLUMN_THUMBNAIL,
+                ArticleEntry.COLUMN_TRAIL_TEXT};
+        Cursor cursor = db.query(ArticleEntry.TABLE_NAME, projection,
+                ArticleEntry.COLUMN_QUERY_URL + "=?", new String[]{queryUrl},
+                null, null, ArticleEntry.COLUMN_POSITION);
+
+        ArrayList<Article> articles = new ArrayList<>(cursor.getCount());
+        PublicationDateParser dateParser = new PublicationDateParser();
+        try {
+            while (cursor.moveToNext()) {
+                articles.add(dateParser.createArticle(cursor.getString(0), cursor.getString(1),
+                        cursor.getString(2), cursor.getLong(3), cursor.getString(4),
+                        cursor.getString(5), cursor.getString(6)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return articles;
+    }
+
+    // SQLiteStatement does not accept null for bindString
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.android.newsapp;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Lets another thread abort a request made by {@link QueryUtils}. Interrupting the thread making
+ * the request is not enough, a blocking socket read ignores interrupts, so cancelling disconnects
+ * the request's connection as well, which makes the read fail right away.
+ */
+
+public class CancellationToken {
+
+    private boolean mCancelled;
+
+    // The connection of the request currently made with this token, or null
+    private HttpURLConnection mConnection;
+
+    /**
+     * Cancel the request, disconnecting its connection if it is open
+     */
+    public synchronized void cancel() {
+        mCancelled = true;
+        if (mConnection != null) {
+            mConnection.disconnect();
+            mConnection = null;
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Register the connection of the request about to be made
+     * @param connection is the connection, not connected yet
+     * @return false if the token was already cancelled and the request must not be made
+     */
+    synchronized boolean attach(HttpURLConnection connection) {
+        if (mCancelled) {
+            return false;
+        }
+        mConnection = connection;
+        return true;
+    }
+
+    // Forget the connection once its request is finished, it may then be reused for another one
+    synchronized void detach() {
+        mConnection = null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.android.newsapp;
+
+/**
+ * Circuit breaker guarding the requests to a server. After a number of consecutive failures the
+ * circuit opens and requests are refused without touching the network. Once the open period is
+ * over a single trial request is let through; its success closes the circuit again, its failure
+ * opens it for another period.
+ */
+
+public class CircuitBreaker {
+
+    // The states of the circuit
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int mFailureThreshold;
+    private final long mOpenDurationMillis;
+
+    private State mState = State.CLOSED;
+    private int mConsecutiveFailures;
+    private long mOpenedAt;
+
+    /**
+     * Constructs a new {@link CircuitBreaker}
+     * @param failureThreshold is the number of consecutive failures that opens the circuit
+     * @param openDurationMillis is how long the circuit stays open before a trial request
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+        mFailureThreshold = failureThreshold;
+        mOpenDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * Check whether a request may be made now. When the open period is over this lets exactly one
+     * trial request through and refuses the others until the trial is recorded.
+     * @return true if the request may be made
+     */
+    public synchronized boolean allowRequest() {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - mOpenedAt >= mOpenDurationMillis) {
+                    mState = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // A trial request is already running
+                return false;
+        }
+    }
+
+    // Record a request the server answered, closing the circuit
+    public synchronized void recordSuccess() {
+        mConsecutiveFailures = 0;
+        mState = State.CLOSED;
+    }
+
+    // Record a failed request, opening the circuit once the threshold is reached
+    public synchronized void recordFailure() {
+        mConsecutiveFailures++;
+        if (mState == State.HALF_OPEN || mConsecutiveFailures >= mFailureThreshold) {
+            mState = State.OPEN;
+            mOpenedAt = System.currentTimeMillis();
+        }
+    }
+
+    // Record a request that was cancelled before the server answered. A cancelled trial tells
+    // nothing about the server, so the circuit opens again without counting a failure, and as its
+    // open period is already over the next request becomes the trial.
+    public synchronized void recordCancelled() {
+        if (mState == State.HALF_OPEN) {
+            mState = State.OPEN;
+        }
+    }
+
+    public synchronized State getState() {
+        return mState;
+    }
+}
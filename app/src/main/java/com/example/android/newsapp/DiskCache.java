@@ -0,0 +1,143 @@
+package com.example.android.newsapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Bounded cache of downloaded files in a directory, one file per key. Reading an entry marks it
+ * as recently used, and the least recently used files are deleted once the directory grows over
+ * its maximum size.
+ */
+
+public class DiskCache {
+
+    // Files are compared by the time they were last used, oldest first
+    private static final Comparator<File> OLDEST_FIRST = new Comparator<File>() {
+        @Override
+        public int compare(File a, File b) {
+            long timeA = a.lastModified();
+            long timeB = b.lastModified();
+            return timeA < timeB ? -1 : (timeA == timeB ? 0 : 1);
+        }
+    };
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+
+    /**
+     * Constructs a new {@link DiskCache}
+     * @param directory is the directory holding the cached files, created if needed
+     * @param maxBytes is the size the files are trimmed to after every write
+     */
+    public DiskCache(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Return the cached file for the given key and mark it as recently used
+     * @param key is the key of the entry, like the URL it was downloaded from
+     * @return File, or null if the entry is not cached
+     */
+    public synchronized File get(String key) {
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Copy the given stream into the cache. The entry only becomes visible once it is complete,
+     * so a failed or cancelled download never leaves a truncated file behind.
+     * @param key is the key of the entry, like the URL it was downloaded from
+     * @param inputStream is the content of the entry, it is not closed
+     * @return the cached File
+     * @throws IOException if reading the stream or writing the file fails
+     */
+    public File put(String key, InputStream inputStream) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + mDirectory);
+        }
+
+        File file = fileFor(key);
+        File tempFile =
+                new File(mDirectory, file.getName() + ".tmp" + Thread.currentThread().getId());
+        OutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+        } catch (IOException e) {
+            outputStream.close();
+            tempFile.delete();
+            throw e;
+        }
+        outputStream.close();
+
+        synchronized (this) {
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                throw new IOException("Cannot rename " + tempFile);
+            }
+            trim();
+        }
+        return file;
+    }
+
+    // Delete the least recently used files until the directory is within its maximum size
+    private void trim() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long totalBytes = 0;
+        for (File file : files) {
+            totalBytes += file.length();
+        }
+        if (totalBytes <= mMaxBytes) {
+            return;
+        }
+
+        Arrays.sort(files, OLDEST_FIRST);
+        for (File file : files) {
+            if (totalBytes <= mMaxBytes) {
+                break;
+            }
+            if (file.getName().contains(".tmp")) {
+                // Another download is still writing it
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    // Return the file of the given key, named after the MD5 hash of the key
+    private File fileFor(String key) {
+        StringBuilder name = new StringBuilder(32);
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+        } catch (NoSuchAlgorithmException | IOException e) {
+            // Every Java platform has MD5 and UTF-8, fall back to the hash code all the same
+            name.append(Integer.toHexString(key.hashCode()));
+        }
+        return new File(mDirectory, name.toString());
+    }
+}
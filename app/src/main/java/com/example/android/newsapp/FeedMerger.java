@@ -0,0 +1,266 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Merges the articles of several sources into a single feed. An article is dropped if an article
+ * already added has the same URL or a near-identical title, and the feed is ranked by recency.
+ *
+ * Near-identical titles are titles whose sets of words have a Jaccard similarity of at least
+ * {@link #MIN_SIMILARITY}. Comparing every title with every other one would not scale, so the
+ * titles are indexed by locality sensitive hashing: a MinHash signature of the words of every
+ * title is split into bands, and only titles sharing a band are compared. Titles at the
+ * threshold share a band with a probability of about 99%, unrelated titles almost never do.
+ *
+ * Not thread safe, the {@link FetchEngine} only uses it from the thread collecting the results.
+ */
+
+public class FeedMerger {
+
+    // Smallest Jaccard similarity of the word sets of near-identical titles
+    public static final double MIN_SIMILARITY = 0.8;
+
+    // The MinHash signature of a title is split into this many bands of BAND_ROWS hashes
+    private static final int BAND_COUNT = 6;
+    private static final int BAND_ROWS = 3;
+
+    // Added to a word hash before mixing to derive the independent hash of every row
+    private static final long ROW_SEED = 0x9e3779b97f4a7c15L;
+
+    // Constants of the 64 bit FNV-1a hash of the characters of a word
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Oldest articles first, articles with an unknown date (-1) before all others
+    private static final Comparator<Article> OLDEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article a, Article b) {
+            long timeA = a.getTimeInMillis();
+            long timeB = b.getTimeInMillis();
+            return timeA < timeB ? -1 : (timeA == timeB ? 0 : 1);
+        }
+    };
+
+    private final Set<String> mUrls = new HashSet<>();
+    private final List<Article> mArticles = new ArrayList<>();
+
+    // Sorted word hashes of every title added so far, by position in mArticles
+    private final List<long[]> mTitleWords = new ArrayList<>();
+
+    // Positions in mArticles by the hash of a band of their signature
+    private final Map<Long, List<Integer>> mBands = new HashMap<>();
+
+    private int mDuplicateCount;
+
+    /**
+     * Add the articles of a source, skipping every article that duplicates one added before
+     * @param articles is the list of articles
+     * @return the number of articles added
+     */
+    public int addAll(List<Article> articles) {
+        int added = 0;
+        for (Article article : articles) {
+            if (add(article)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Add an article unless it duplicates one added before
+     * @param article is the article to add
+     * @return true if the article was added
+     */
+    public boolean add(Article article) {
+        String url = article.getUrl();
+        if (url != null && mUrls.contains(url)) {
+            mDuplicateCount++;
+            return false;
+        }
+
+        long[] words = wordHashes(article.getTitle());
+        long[] bands = words.length > 0 ? bandHashes(words) : null;
+        if (bands != null && findNearDuplicate(bands, words)) {
+            mDuplicateCount++;
+            return false;
+        }
+
+        int position = mArticles.size();
+        mArticles.add(article);
+        if (url != null) {
+            mUrls.add(url);
+        }
+        mTitleWords.add(words);
+        if (bands != null) {
+            for (long band : bands) {
+                List<Integer> positions = mBands.get(band);
+                if (positions == null) {
+                    positions = new ArrayList<>(2);
+                    mBands.put(band, positions);
+                }
+                positions.add(position);
+            }
+        }
+        return true;
+    }
+
+    // Number of articles added
+    public int size() {
+        return mArticles.size();
+    }
+
+    // Number of articles skipped as duplicates
+    public int getDuplicateCount() {
+        return mDuplicateCount;
+    }
+
+    /**
+     * Return the newest articles added, selected with a heap of at most maxCount articles so only
+     * the returned articles are ever ordered
+     * @param maxCount is the largest number of articles to return
+     * @return List<Article> of at most maxCount articles, newest first, articles with an unknown
+     * date last
+     */
+    public List<Article> getNewest(int maxCount) {
+        int count = Math.min(maxCount, mArticles.size());
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Min-heap of the newest articles seen so far, its head is the oldest of them
+        PriorityQueue<Article> newest = new PriorityQueue<>(count, OLDEST_FIRST);
+        for (Article article : mArticles) {
+            if (newest.size() < count) {
+                newest.add(article);
+            } else if (OLDEST_FIRST.compare(article, newest.peek()) > 0) {
+                newest.poll();
+                newest.add(article);
+            }
+        }
+
+        List<Article> ranked = new ArrayList<>(count);
+        while (!newest.isEmpty()) {
+            ranked.add(newest.poll());
+        }
+        Collections.reverse(ranked);
+        return ranked;
+    }
+
+    // Check the articles sharing a band with the given title for a near-identical title
+    private boolean findNearDuplicate(long[] bands, long[] words) {
+        for (long band : bands) {
+            List<Integer> positions = mBands.get(band);
+            if (positions == null) {
+                continue;
+            }
+            for (int position : positions) {
+                if (similarity(mTitleWords.get(position), words) >= MIN_SIMILARITY) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the hashes of the distinct words of a title, sorted. Words are compared ignoring
+     * case, and anything but letters and digits separates them, so titles that only differ in
+     * punctuation or case have the same words.
+     * @param title is the title, may be null
+     * @return sorted array of distinct word hashes, empty if the title has no words
+     */
+    static long[] wordHashes(String title) {
+        if (title == null) {
+            return new long[0];
+        }
+        String lowerCase = title.toLowerCase(Locale.ROOT);
+        long[] hashes = new long[lowerCase.length() / 2 + 1];
+        int count = 0;
+        long hash = 0;
+        boolean inWord = false;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            char c = i < lowerCase.length() ? lowerCase.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (!inWord) {
+                    hash = FNV_OFFSET;
+                    inWord = true;
+                }
+                hash = (hash ^ c) * FNV_PRIME;
+            } else if (inWord) {
+                hashes[count++] = mix(hash);
+                inWord = false;
+            }
+        }
+
+        Arrays.sort(hashes, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || hashes[distinct - 1] != hashes[i]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, distinct);
+    }
+
+    // Spread the bits of a word hash, FNV-1a leaves the high bits of short words poorly mixed
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Return the hashes of the bands of the MinHash signature of a set of words. Every row of the
+     * signature is the smallest hash of the words under a hash function of its own, so two sets
+     * agree on a row with a probability equal to their Jaccard similarity.
+     * @param words is the non-empty array of word hashes
+     * @return array of BAND_COUNT band hashes, each also depending on the index of its band
+     */
+    static long[] bandHashes(long[] words) {
+        long[] bands = new long[BAND_COUNT];
+        for (int band = 0; band < BAND_COUNT; band++) {
+            long bandHash = band;
+            for (int row = 0; row < BAND_ROWS; row++) {
+                long seed = (band * BAND_ROWS + row + 1) * ROW_SEED;
+                long min = Long.MAX_VALUE;
+                for (long word : words) {
+                    min = Math.min(min, mix(word + seed));
+                }
+                bandHash = mix(bandHash * 31 + min);
+            }
+            bands[band] = bandHash;
+        }
+        return bands;
+    }
+
+    // Jaccard similarity of two sorted arrays of distinct word hashes
+    static double similarity(long[] a, long[] b) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - common;
+        return union == 0 ? 1 : (double) common / union;
+    }
+}
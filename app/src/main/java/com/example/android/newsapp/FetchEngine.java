@@ -0,0 +1,248 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fetches several {@link ArticleSource} objects concurrently on a bounded thread pool, with a limit
+ * on the number of requests running against the same host. The results are merged by a
+ * {@link FeedMerger}, which drops duplicate URLs and near-identical titles and ranks the feed by
+ * recency, and handed to a {@link Listener} as every source finishes.
+ *
+ * A source is only handed to the pool once a permit for its host is acquired, so sources waiting
+ * for their host never hold a thread that a source of another host could use. Sources without a
+ * host do not use the network and are not limited.
+ */
+
+public class FetchEngine {
+
+    /**
+     * Interface for receiving the merged results while the sources are being fetched
+     * @param <S> is the type of the sources
+     */
+    public interface Listener<S extends ArticleSource> {
+        /**
+         * Called on the thread running {@link #fetchAll} every time a source finishes
+         * @param source is the source that just finished
+         * @param fetchResult is the result of the source that just finished
+         * @param mergedArticles is the merged feed of all of the sources finished so far
+         * @param remaining is the number of sources still running
+         */
+        void onSourceFinished(S source, FetchResult fetchResult, List<Article> mergedArticles,
+                              int remaining);
+    }
+
+    // Default number of threads and of concurrent requests per host
+    public static final int DEFAULT_THREAD_COUNT = 4;
+    public static final int DEFAULT_MAX_PER_HOST = 2;
+
+    private final ExecutorService mExecutor;
+    private final int mMaxPerHost;
+    private final Map<String, Semaphore> mHostPermits = new ConcurrentHashMap<>();
+
+    public FetchEngine() {
+        this(DEFAULT_THREAD_COUNT, DEFAULT_MAX_PER_HOST);
+    }
+
+    /**
+     * Constructs a new {@link FetchEngine}
+     * @param threadCount is the number of sources fetched at the same time
+     * @param maxPerHost is the number of sources fetched at the same time from a single host
+     */
+    public FetchEngine(int threadCount, int maxPerHost) {
+        mExecutor = Executors.newFixedThreadPool(threadCount);
+        mMaxPerHost = maxPerHost;
+    }
+
+    /**
+     * Fetch all of the given sources and return the merged feed. This blocks until every source
+     * has finished, so it must be called from a background thread.
+     * @param sources is the list of sources
+     * @param listener is notified with the partial results as every source finishes, may be null
+     * @return List<Article> of all of the sources, de-duplicated, newest first. Sources that
+     * failed, or were left after {@link #shutdown}, are left out.
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public <S extends ArticleSource> List<Article> fetchAll(List<S> sources,
+                                                            Listener<S> listener)
+            throws InterruptedException {
+        return fetchAll(sources, Integer.MAX_VALUE, listener);
+    }
+
+    /**
+     * Fetch all of the given sources and return the newest articles of the merged feed. This
+     * blocks until every source has finished, so it must be called from a background thread.
+     * @param sources is the list of sources
+     * @param maxArticles is the largest number of articles of the merged feed
+     * @param listener is notified with the partial results as every source finishes, may be null
+     * @return List<Article> of at most maxArticles articles of all of the sources, de-duplicated,
+     * newest first. Sources that failed, or were left after {@link #shutdown}, are left out.
+     * @throws InterruptedException if the calling thread was interrupted while waiting, the
+     * sources not finished yet are then cancelled
+     */
+    public <S extends ArticleSource> List<Article> fetchAll(List<S> sources, int maxArticles,
+                                                            Listener<S> listener)
+            throws InterruptedException {
+        LinkedList<S> pending = new LinkedList<>(sources);
+        BlockingQueue<SourceTask<S>> finished = new LinkedBlockingQueue<>();
+        List<SourceTask<S>> submitted = new ArrayList<>(sources.size());
+
+        // The first source to return an article wins over its duplicates
+        FeedMerger merger = new FeedMerger();
+        List<Article> merged = merger.getNewest(maxArticles);
+
+        try {
+            int running = 0;
+            for (int remaining = sources.size() - 1; remaining >= 0; remaining--) {
+                running += submitReady(pending, finished, submitted);
+                if (running == 0) {
+                    // The permits of every host left are held by other calls of this engine,
+                    // wait for one here rather than on a thread of the pool
+                    S source = pending.removeFirst();
+                    Semaphore permits = permitsFor(source);
+                    permits.acquire();
+                    submit(new SourceTask<>(source, permits, finished), submitted);
+                    running++;
+                }
+
+                SourceTask<S> task = finished.take();
+                running--;
+                FetchResult fetchResult;
+                try {
+                    fetchResult = task.get();
+                } catch (ExecutionException e) {
+                    // The source threw or the engine was shut down, leave it out like a failed
+                    // request
+                    continue;
+                }
+
+                List<Article> sourceArticles = fetchResult.getArticles();
+                if (sourceArticles != null && merger.addAll(sourceArticles) > 0) {
+                    merged = merger.getNewest(maxArticles);
+                }
+
+                if (listener != null) {
+                    listener.onSourceFinished(task.mSource, fetchResult, merged, remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            for (SourceTask<S> task : submitted) {
+                task.cancel(true);
+            }
+            throw e;
+        }
+        return merged;
+    }
+
+    /**
+     * Submit every pending source whose host has a permit left, in order
+     * @param pending is the sources not submitted yet, the submitted ones are removed
+     * @param finished is the queue the tasks are added to once they finish
+     * @param submitted is the list the submitted tasks are added to
+     * @return the number of sources submitted
+     */
+    private <S extends ArticleSource> int submitReady(List<S> pending,
+                                                      BlockingQueue<SourceTask<S>> finished,
+                                                      List<SourceTask<S>> submitted) {
+        int count = 0;
+        Iterator<S> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            S source = iterator.next();
+            Semaphore permits = permitsFor(source);
+            if (permits == null || permits.tryAcquire()) {
+                iterator.remove();
+                submit(new SourceTask<>(source, permits, finished), submitted);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private <S extends ArticleSource> void submit(SourceTask<S> task,
+                                                  List<SourceTask<S>> submitted) {
+        submitted.add(task);
+        try {
+            mExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // The engine was shut down, the source fails without running, which gives back the
+            // permit of its host and adds it to the finished queue
+            task.reject(e);
+        }
+    }
+
+    // Stop the threads of the engine, sources already running are finished and the sources
+    // fetched later fail
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    // Return the semaphore limiting the concurrent requests to the host of the given source, or
+    // null if the source does not use the network
+    private Semaphore permitsFor(ArticleSource source) {
+        String host = source.getHost();
+        if (host == null) {
+            return null;
+        }
+
+        Semaphore permits = mHostPermits.get(host);
+        if (permits == null) {
+            synchronized (mHostPermits) {
+                permits = mHostPermits.get(host);
+                if (permits == null) {
+                    permits = new Semaphore(mMaxPerHost);
+                    mHostPermits.put(host, permits);
+                }
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * Fetches a single source, submitted with a permit for its host already acquired. The permit
+     * is released and the task added to the finished queue once it completes, fails or is
+     * cancelled, even if it never got to run.
+     */
+    private static class SourceTask<S extends ArticleSource> extends FutureTask<FetchResult> {
+        final S mSource;
+        private final Semaphore mPermits;
+        private final BlockingQueue<SourceTask<S>> mFinished;
+
+        SourceTask(final S source, Semaphore permits, BlockingQueue<SourceTask<S>> finished) {
+            super(new Callable<FetchResult>() {
+                @Override
+                public FetchResult call() throws InterruptedException {
+                    return source.fetch();
+                }
+            });
+            mSource = source;
+            mPermits = permits;
+            mFinished = finished;
+        }
+
+        // Fail the task without running it
+        void reject(RejectedExecutionException e) {
+            setException(e);
+        }
+
+        @Override
+        protected void done() {
+            if (mPermits != null) {
+                mPermits.release();
+            }
+            mFinished.add(this);
+        }
+    }
+}
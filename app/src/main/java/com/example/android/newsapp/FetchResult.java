@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+
+/**
+ * Object to hold the outcome of one request to the Guardian API: the parsed articles along with
+ * the cache validators the server sent back and the number of bytes transferred
+ */
+
+public class FetchResult {
+    private ArrayList<Article> mArticles;
+    private boolean mNotModified;
+    private String mETag;
+    private String mLastModified;
+    private long mByteCount;
+    private int mResponseCode;
+    private long mRetryAfterMillis;
+
+    /**
+     * {@link FetchResult} object
+     * @param articles is the list of parsed articles, null if the request failed or the server
+     *                 answered 304 Not Modified
+     * @param notModified is true if the server answered 304 Not Modified
+     * @param eTag is the ETag header of the response, may be null
+     * @param lastModified is the Last-Modified header of the response, may be null
+     * @param byteCount is the number of response body bytes read off the network
+     */
+    public FetchResult(ArrayList<Article> articles, boolean notModified, String eTag,
+                       String lastModified, long byteCount) {
+        this(articles, notModified, eTag, lastModified, byteCount, -1, -1);
+    }
+
+    /**
+     * {@link FetchResult} object, including how the server answered
+     * @param articles is the list of parsed articles, null if the request failed or the server
+     *                 answered 304 Not Modified
+     * @param notModified is true if the server answered 304 Not Modified
+     * @param eTag is the ETag header of the response, may be null
+     * @param lastModified is the Last-Modified header of the response, may be null
+     * @param byteCount is the number of response body bytes read off the network
+     * @param responseCode is the HTTP response code, or -1 if there was no response
+     * @param retryAfterMillis is the delay asked for by a Retry-After header, or -1
+     */
+    public FetchResult(ArrayList<Article> articles, boolean notModified, String eTag,
+                       String lastModified, long byteCount, int responseCode,
+                       long retryAfterMillis) {
+        mArticles = articles;
+        mNotModified = notModified;
+        mETag = eTag;
+        mLastModified = lastModified;
+        mByteCount = byteCount;
+        mResponseCode = responseCode;
+        mRetryAfterMillis = retryAfterMillis;
+    }
+
+    // The following methods are for retrieving the individual items from the object
+    public ArrayList<Article> getArticles() {
+        return mArticles;
+    }
+
+    public boolean isNotModified() {
+        return mNotModified;
+    }
+
+    public String getETag() {
+        return mETag;
+    }
+
+    public String getLastModified() {
+        return mLastModified;
+    }
+
+    public long getByteCount() {
+        return mByteCount;
+    }
+
+    public int getResponseCode() {
+        return mResponseCode;
+    }
+
+    public long getRetryAfterMillis() {
+        return mRetryAfterMillis;
+    }
+
+    // True if the server either sent new articles or confirmed the stored ones are unchanged
+    public boolean isSuccessful() {
+        return mNotModified || mArticles != null;
+    }
+
+    // True if the request failed in a way that may go away by itself: no response at all, too
+    // many requests, or a server error
+    public boolean isRetryable() {
+        return !isSuccessful() && (mResponseCode == -1 || mResponseCode == 429
+                || mResponseCode >= 500);
+    }
+}
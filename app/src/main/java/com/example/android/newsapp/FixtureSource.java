@@ -0,0 +1,67 @@
+package com.example.android.newsapp;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ArticleSource} returning a fixed list of articles without using the network, optionally
+ * after a delay standing in for the latency of a request. Used to exercise the
+ * {@link FetchEngine} and the {@link FeedMerger} off the device.
+ */
+
+public class FixtureSource implements ArticleSource {
+
+    private final String mKey;
+    private final List<Article> mArticles;
+    private final long mDelayMillis;
+
+    /**
+     * Constructs a new {@link FixtureSource}
+     * @param key is the key of the source
+     * @param articles is the list of articles every fetch returns
+     * @param delayMillis is how long every fetch blocks before returning, 0 for none
+     */
+    public FixtureSource(String key, List<Article> articles, long delayMillis) {
+        mKey = key;
+        mArticles = new ArrayList<>(articles);
+        mDelayMillis = delayMillis;
+    }
+
+    /**
+     * Create a {@link FixtureSource} from a Guardian API search response
+     * @param key is the key of the source
+     * @param jsonResponse is the response String
+     * @return FixtureSource without a delay
+     * @throws JSONException if the response is not valid
+     */
+    public static FixtureSource fromJson(String key, String jsonResponse) throws JSONException {
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(jsonResponse, articles);
+        return new FixtureSource(key, articles, 0);
+    }
+
+    @Override
+    public String getKey() {
+        return mKey;
+    }
+
+    @Override
+    public String getHost() {
+        return null;
+    }
+
+    @Override
+    public FetchResult fetch() throws InterruptedException {
+        if (mDelayMillis > 0) {
+            Thread.sleep(mDelayMillis);
+        }
+        return new FetchResult(new ArrayList<>(mArticles), false, null, null, 0);
+    }
+
+    @Override
+    public String toString() {
+        return mKey;
+    }
+}
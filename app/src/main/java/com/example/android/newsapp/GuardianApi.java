@@ -0,0 +1,208 @@
+package com.example.android.newsapp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The parts of {@link QueryUtils} that do not depend on the Android framework: making the
+ * requests to the Guardian API and reading and parsing its JSON responses, the request URLs are
+ * built by {@link GuardianQuery}. Errors are thrown instead of logged, so the code can also run
+ * on a plain JVM, like the benchmark module and the unit tests do.
+ */
+
+public final class GuardianApi {
+
+    // Fields requested on top of the default ones, read into the thumbnail and trail text
+    public static final String[] SHOW_FIELDS = {"thumbnail", "trailText"};
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private GuardianApi() {
+    }
+
+    /**
+     * Turn the HTML of a "trailText" field into plain text, so it can be shown without parsing
+     * HTML on every bind. Tags are dropped and the common entities are decoded.
+     * @param html is the HTML String, may be null
+     * @return plain text String, or null if the given String is null
+     */
+    public static String stripHtml(String html) {
+        if (html == null) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder(html.length());
+        boolean inTag = false;
+        for (int i = 0; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                inTag = true;
+            } else if (c == '>' && inTag) {
+                inTag = false;
+            } else if (!inTag) {
+                text.append(c);
+            }
+        }
+        if (text.indexOf("&") == -1) {
+            return text.toString().trim();
+        }
+        return text.toString()
+                .replace("&nbsp;", " ")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&amp;", "&")
+                .trim();
+    }
+
+    /**
+     * Read the whole {@link InputStream} and decode it as UTF-8 text. The bytes are read into a
+     * pooled {@link ResponseBuffer} and decoded from it straight into the returned String, without
+     * decoding line by line or joining the text in a StringBuilder.
+     * @param inputStream is the response from the server
+     * @param expectedLength is the expected length of the response, or -1 if not known, see
+     *                       {@link ResponseBuffer#expectedLength}
+     * @return String of the whole response
+     * @throws IOException if there is a problem with reading the InputStream
+     */
+    public static String readFully(InputStream inputStream, int expectedLength)
+            throws IOException {
+        ResponseBuffer buffer = ResponseBuffer.obtain(expectedLength);
+        try {
+            buffer.readFrom(inputStream);
+            return buffer.decode();
+        } finally {
+            buffer.recycle();
+        }
+    }
+
+    /**
+     * Open and connect an {@link HttpURLConnection} for a GET request to the given URL. The
+     * response is requested gzip compressed, and the cache validators are sent when given. The
+     * validators are kept with the articles in ArticleStore, so no HTTP cache is consulted.
+     * @param url is the query URL
+     * @param eTag is sent as If-None-Match when not null
+     * @param lastModified is sent as If-Modified-Since when not null
+     * @param httpConfig holds the timeouts of the request
+     * @param cancellationToken gets the connection before it connects, so it can be cut off
+     * @return the connected HttpURLConnection
+     * @throws IOException if connecting fails or the token is already cancelled
+     */
+    public static HttpURLConnection openConnection(URL url, String eTag, String lastModified,
+                                                   HttpConfig httpConfig,
+                                                   CancellationToken cancellationToken)
+            throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        urlConnection.setReadTimeout(httpConfig.getReadTimeoutMillis());
+        urlConnection.setConnectTimeout(httpConfig.getConnectTimeoutMillis());
+        urlConnection.setRequestMethod("GET");
+        urlConnection.setUseCaches(false);
+        urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+        if (eTag != null) {
+            urlConnection.setRequestProperty("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+            urlConnection.setRequestProperty("If-Modified-Since", lastModified);
+        }
+        if (!cancellationToken.attach(urlConnection)) {
+            throw new IOException("Request cancelled");
+        }
+        urlConnection.connect();
+        return urlConnection;
+    }
+
+    // Setting Accept-Encoding ourselves turns off transparent decompression, so unwrap gzip here
+    public static InputStream decodedStream(HttpURLConnection urlConnection,
+                                            InputStream inputStream) throws IOException {
+        if ("gzip".equalsIgnoreCase(urlConnection.getContentEncoding())) {
+            return new GZIPInputStream(inputStream);
+        }
+        return inputStream;
+    }
+
+    /**
+     * Parse a JSON response String into a JSONObject tree and add an {@link Article} for every
+     * entry of its "response.results" array to the given list
+     * @param jsonResponse is the JSON response from the server as a String
+     * @param articles receives the articles parsed so far, also when an exception is thrown
+     * @throws JSONException if there is a problem with the way the JSON is formatted
+     */
+    public static void parseArticles(String jsonResponse, List<Article> articles)
+            throws JSONException {
+        String sectionString = "";
+        String titleString = "";
+        String typeString = "";
+        String publicationDateString = "";
+        String urlString = "";
+        String thumbnailString = null;
+        String trailTextString = null;
+
+        // Parse and format every publication date here, off the UI thread
+        PublicationDateParser dateParser = new PublicationDateParser();
+
+        // Create a JSONObject from the JSON response string
+        JSONObject baseJsonResponse = new JSONObject(jsonResponse);
+
+        // Extract the JSONObject associated with the key called "response"
+        JSONObject responseJsonObject = baseJsonResponse.getJSONObject("response");
+
+        if (responseJsonObject != null) {
+            // Extract the JSONArray associated with the key called "results"
+            JSONArray resultsJsonArray = responseJsonObject.getJSONArray("results");
+
+            if (resultsJsonArray != null) {
+                // Create an {@link Article} object for each article in the resultsJsonArray
+                for (int i = 0; i < resultsJsonArray.length(); i++) {
+
+                    // Get the current article from the resultsJsonArray
+                    JSONObject currentArticleJsonObject = resultsJsonArray.getJSONObject(i);
+
+                    if (currentArticleJsonObject != null) {
+                        // Get the Section from the current article "sectionName" key
+                        sectionString = currentArticleJsonObject.getString("sectionName");
+
+                        // Get the Title from the current article "webTitle" key
+                        titleString = currentArticleJsonObject.getString("webTitle");
+
+                        // Get the Type from the current article "type" key
+                        typeString = currentArticleJsonObject.getString("type");
+
+                        // Get the Date from the current article "webPublicationDate" key
+                        publicationDateString =
+                                currentArticleJsonObject.getString("webPublicationDate");
+
+                        // Get the URL from the current article "webUrl" key
+                        urlString = currentArticleJsonObject.getString("webUrl");
+
+                        // Get the thumbnail and trail text from the optional "fields" object
+                        JSONObject fieldsJsonObject =
+                                currentArticleJsonObject.optJSONObject("fields");
+                        thumbnailString = null;
+                        trailTextString = null;
+                        if (fieldsJsonObject != null) {
+                            thumbnailString = fieldsJsonObject.optString("thumbnail", null);
+                            trailTextString =
+                                    stripHtml(fieldsJsonObject.optString("trailText", null));
+                        }
+                    }
+
+                    // Create a new {@link Article} object with the section, title, author,
+                    // publication date, url, thumbnail and trail text from the JSON response
+                    Article article = dateParser.createArticle(sectionString, titleString,
+                            typeString, publicationDateString, urlString, thumbnailString,
+                            trailTextString);
+
+                    // Add the new {@link Article} to the list of articles
+                    articles.add(article);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.android.newsapp;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable query to the search endpoint of the Guardian API, created with a {@link Builder}.
+ *
+ * The URL of a query is canonical: it always uses HTTPS, the parameters are sorted by name, the
+ * values of a list parameter are sorted and every value is percent encoded the same way, so equal
+ * queries always produce the same URL no matter in which order they were built.
+ * {@link #getCacheKey()} is the same URL without the API key, the store and the request coalescer
+ * key the results of a query by it.
+ */
+
+public final class GuardianQuery {
+
+    // The search endpoint, without any parameters
+    public static final String ENDPOINT = "https://content.guardianapis.com/search";
+
+    // Values of setOrderBy
+    public static final String ORDER_BY_NEWEST = "newest";
+    public static final String ORDER_BY_OLDEST = "oldest";
+    public static final String ORDER_BY_RELEVANCE = "relevance";
+
+    // The largest page the Guardian API returns
+    public static final int MAX_PAGE_SIZE = 200;
+
+    // Names of the parameters
+    private static final String PARAM_API_KEY = "api-key";
+    private static final String PARAM_QUERY = "q";
+    private static final String PARAM_SECTION = "section";
+    private static final String PARAM_TAG = "tag";
+    private static final String PARAM_FROM_DATE = "from-date";
+    private static final String PARAM_TO_DATE = "to-date";
+    private static final String PARAM_PAGE = "page";
+    private static final String PARAM_PAGE_SIZE = "page-size";
+    private static final String PARAM_ORDER_BY = "order-by";
+    private static final String PARAM_SHOW_FIELDS = "show-fields";
+
+    // Parameter values by name, sorted by name
+    private final TreeMap<String, String> mParameters;
+
+    // Built lazily, a query is immutable so they never change
+    private String mUrlString;
+    private String mCacheKey;
+
+    private GuardianQuery(TreeMap<String, String> parameters) {
+        mParameters = parameters;
+    }
+
+    /**
+     * Return a {@link Builder} holding the parameters of this query, to create a modified copy
+     * @return Builder
+     */
+    public Builder buildUpon() {
+        return new Builder(mParameters);
+    }
+
+    /**
+     * Return the URL String of the query
+     * @return canonical URL String, including the API key
+     */
+    public String toUrlString() {
+        if (mUrlString == null) {
+            mUrlString = buildUrlString(true);
+        }
+        return mUrlString;
+    }
+
+    /**
+     * Return the key identifying the results of the query, the same for every equal query
+     * @return canonical URL String without the API key
+     */
+    public String getCacheKey() {
+        if (mCacheKey == null) {
+            mCacheKey = buildUrlString(false);
+        }
+        return mCacheKey;
+    }
+
+    // Return the 1-based page of the query, or 1 if it does not set one
+    public int getPage() {
+        String page = mParameters.get(PARAM_PAGE);
+        return page != null ? Integer.parseInt(page) : 1;
+    }
+
+    // Return the page size of the query, or -1 if it does not set one
+    public int getPageSize() {
+        String pageSize = mParameters.get(PARAM_PAGE_SIZE);
+        return pageSize != null ? Integer.parseInt(pageSize) : -1;
+    }
+
+    // Build the URL String, with or without the API key
+    private String buildUrlString(boolean includeApiKey) {
+        StringBuilder url = new StringBuilder(ENDPOINT.length() + 32 * mParameters.size());
+        url.append(ENDPOINT);
+        char separator = '?';
+        for (Map.Entry<String, String> parameter : mParameters.entrySet()) {
+            if (!includeApiKey && parameter.getKey().equals(PARAM_API_KEY)) {
+                continue;
+            }
+            url.append(separator).append(parameter.getKey()).append('=')
+                    .append(encode(parameter.getValue()));
+            separator = '&';
+        }
+        return url.toString();
+    }
+
+    /**
+     * Percent encode a parameter value, as RFC 3986 asks for. Unlike a plain URLEncoder a space
+     * becomes %20 rather than +, and only letters, digits and "-._~" are left alone.
+     * @param value is the value to encode
+     * @return encoded value
+     */
+    static String encode(String value) {
+        String encoded;
+        try {
+            encoded = URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Every Java platform supports UTF-8
+            throw new IllegalStateException(e);
+        }
+        return encoded.replace("+", "%20").replace("*", "%2A").replace("%7E", "~");
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof GuardianQuery
+                && mParameters.equals(((GuardianQuery) other).mParameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return mParameters.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getCacheKey();
+    }
+
+    /**
+     * Builder of {@link GuardianQuery} objects. Every setter replaces the previous value of its
+     * parameter, and setting null removes the parameter.
+     */
+    public static final class Builder {
+
+        private final TreeMap<String, String> mParameters;
+
+        public Builder() {
+            mParameters = new TreeMap<>();
+        }
+
+        private Builder(TreeMap<String, String> parameters) {
+            mParameters = new TreeMap<>(parameters);
+        }
+
+        // The key sent with every request, it is not part of the cache key
+        public Builder setApiKey(String apiKey) {
+            return set(PARAM_API_KEY, apiKey);
+        }
+
+        // The words to search for, as typed by the user, they are encoded when the URL is built
+        public Builder setQueryText(String queryText) {
+            return set(PARAM_QUERY, queryText == null ? null : queryText.trim());
+        }
+
+        // Only return articles of the given section id, like "travel"
+        public Builder setSection(String section) {
+            return set(PARAM_SECTION, section);
+        }
+
+        // Only return articles with the given tag id, like "travel/france"
+        public Builder setTag(String tag) {
+            return set(PARAM_TAG, tag);
+        }
+
+        // Only return articles published at or after the given time
+        public Builder setFromDate(long timeInMillis) {
+            return set(PARAM_FROM_DATE, formatDate(timeInMillis));
+        }
+
+        // Only return articles published at or before the given time
+        public Builder setToDate(long timeInMillis) {
+            return set(PARAM_TO_DATE, formatDate(timeInMillis));
+        }
+
+        /**
+         * Set the page of the results to return
+         * @param page is the 1-based page
+         * @return this Builder
+         * @throws IllegalArgumentException if the page is less than 1
+         */
+        public Builder setPage(int page) {
+            if (page < 1) {
+                throw new IllegalArgumentException("Invalid page " + page);
+            }
+            return set(PARAM_PAGE, String.valueOf(page));
+        }
+
+        /**
+         * Set the number of articles on every page
+         * @param pageSize is the page size, from 1 to {@link #MAX_PAGE_SIZE}
+         * @return this Builder
+         * @throws IllegalArgumentException if the page size is out of range
+         */
+        public Builder setPageSize(int pageSize) {
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Invalid page size " + pageSize);
+            }
+            return set(PARAM_PAGE_SIZE, String.valueOf(pageSize));
+        }
+
+        // One of ORDER_BY_NEWEST, ORDER_BY_OLDEST or ORDER_BY_RELEVANCE
+        public Builder setOrderBy(String orderBy) {
+            return set(PARAM_ORDER_BY, orderBy);
+        }
+
+        // The extra fields to return for every article, like "thumbnail" and "trailText", in any
+        // order. They are sorted and duplicates dropped, so the order does not change the key.
+        public Builder setShowFields(String... fields) {
+            if (fields == null || fields.length == 0) {
+                return set(PARAM_SHOW_FIELDS, null);
+            }
+            TreeSet<String> sortedFields = new TreeSet<>();
+            for (String field : fields) {
+                if (field != null && !field.isEmpty()) {
+                    sortedFields.add(field);
+                }
+            }
+            StringBuilder joined = new StringBuilder();
+            for (String field : sortedFields) {
+                if (joined.length() > 0) {
+                    joined.append(',');
+                }
+                joined.append(field);
+            }
+            return set(PARAM_SHOW_FIELDS, joined.toString());
+        }
+
+        public GuardianQuery build() {
+            return new GuardianQuery(new TreeMap<>(mParameters));
+        }
+
+        private Builder set(String name, String value) {
+            if (value == null || value.isEmpty()) {
+                mParameters.remove(name);
+            } else {
+                mParameters.put(name, value);
+            }
+            return this;
+        }
+
+        // Format a time the way the Guardian API returns its dates, i.e. "2016-11-26T14:05:00Z"
+        private static String formatDate(long timeInMillis) {
+            SimpleDateFormat isoFormat =
+                    new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+            isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return isoFormat.format(new Date(timeInMillis));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.android.newsapp;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * {@link ArticleSource} of a single query to the Guardian API, fetched through the
+ * {@link RequestCoalescer} so it shares requests with the loaders
+ */
+
+public class GuardianSource implements ArticleSource {
+
+    private final GuardianQuery mQuery;
+
+    // Validators of the stored articles of the query, sent to get a 304 if they are unchanged
+    private final String mETag;
+    private final String mLastModified;
+
+    /**
+     * Constructs a new {@link GuardianSource}
+     * @param query is the query to the Guardian API
+     */
+    public GuardianSource(GuardianQuery query) {
+        this(query, null, null);
+    }
+
+    /**
+     * Constructs a new {@link GuardianSource} revalidating stored articles
+     * @param query is the query to the Guardian API
+     * @param eTag is the ETag of the stored articles of the query, or null
+     * @param lastModified is the Last-Modified of the stored articles of the query, or null
+     */
+    public GuardianSource(GuardianQuery query, String eTag, String lastModified) {
+        mQuery = query;
+        mETag = eTag;
+        mLastModified = lastModified;
+    }
+
+    public GuardianQuery getQuery() {
+        return mQuery;
+    }
+
+    @Override
+    public String getKey() {
+        return mQuery.getCacheKey();
+    }
+
+    @Override
+    public String getHost() {
+        try {
+            return new URL(GuardianQuery.ENDPOINT).getHost();
+        } catch (MalformedURLException e) {
+            // The endpoint is a constant, valid URL
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public FetchResult fetch() throws InterruptedException {
+        return RequestCoalescer.getInstance().fetch(mQuery, mETag, mLastModified);
+    }
+
+    @Override
+    public String toString() {
+        return mQuery.toString();
+    }
+}
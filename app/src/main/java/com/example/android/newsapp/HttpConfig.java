@@ -0,0 +1,129 @@
+package com.example.android.newsapp;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Immutable settings for the requests to the Guardian API: timeouts, retries with capped
+ * exponential backoff, and the circuit breaker that stops requests to a failing server
+ */
+
+public class HttpConfig {
+
+    // The settings used unless QueryUtils.setHttpConfig is called
+    public static final HttpConfig DEFAULT =
+            new HttpConfig(15000, 10000, 3, 500, 8000, 5, 30000);
+
+    private final int mConnectTimeoutMillis;
+    private final int mReadTimeoutMillis;
+    private final int mMaxRetries;
+    private final long mBaseBackoffMillis;
+    private final long mMaxBackoffMillis;
+    private final int mFailureThreshold;
+    private final long mOpenDurationMillis;
+
+    /**
+     * {@link HttpConfig} object
+     * @param connectTimeoutMillis is the connect timeout of every attempt
+     * @param readTimeoutMillis is the read timeout of every attempt
+     * @param maxRetries is the number of attempts made after the first one failed
+     * @param baseBackoffMillis is the backoff before the first retry, it doubles with every retry
+     * @param maxBackoffMillis is the cap of the backoff, and of a server's Retry-After
+     * @param failureThreshold is the number of consecutive failures that opens the circuit
+     * @param openDurationMillis is how long the circuit stays open before a trial request
+     */
+    public HttpConfig(int connectTimeoutMillis, int readTimeoutMillis, int maxRetries,
+                      long baseBackoffMillis, long maxBackoffMillis, int failureThreshold,
+                      long openDurationMillis) {
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+        mMaxRetries = maxRetries;
+        mBaseBackoffMillis = baseBackoffMillis;
+        mMaxBackoffMillis = maxBackoffMillis;
+        mFailureThreshold = failureThreshold;
+        mOpenDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * Return a copy of these settings with other timeouts
+     * @param connectTimeoutMillis is the connect timeout of every attempt
+     * @param readTimeoutMillis is the read timeout of every attempt
+     * @return HttpConfig
+     */
+    public HttpConfig withTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        if (connectTimeoutMillis == mConnectTimeoutMillis
+                && readTimeoutMillis == mReadTimeoutMillis) {
+            return this;
+        }
+        return new HttpConfig(connectTimeoutMillis, readTimeoutMillis, mMaxRetries,
+                mBaseBackoffMillis, mMaxBackoffMillis, mFailureThreshold, mOpenDurationMillis);
+    }
+
+    // The following methods are for retrieving the individual settings from the object
+    public int getConnectTimeoutMillis() {
+        return mConnectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return mReadTimeoutMillis;
+    }
+
+    public int getMaxRetries() {
+        return mMaxRetries;
+    }
+
+    public long getBaseBackoffMillis() {
+        return mBaseBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return mMaxBackoffMillis;
+    }
+
+    public int getFailureThreshold() {
+        return mFailureThreshold;
+    }
+
+    public long getOpenDurationMillis() {
+        return mOpenDurationMillis;
+    }
+
+    /**
+     * Return the backoff before a retry. It doubles with every attempt up to the cap, and a random
+     * part of its upper half is used, so clients do not retry in lockstep.
+     * @param attempt is the 0-based number of the attempt that just failed
+     * @param random is a random number from 0 (inclusive) to 1 (exclusive)
+     * @return the backoff in milliseconds
+     */
+    public long getBackoffMillis(int attempt, double random) {
+        long backoff = Math.min(mMaxBackoffMillis, mBaseBackoffMillis << Math.min(attempt, 30));
+        return backoff / 2 + (long) (random * (backoff / 2));
+    }
+
+    /**
+     * Parse a Retry-After header, which holds either a number of seconds or an HTTP date
+     * @param retryAfter is the header value, may be null
+     * @return the delay in milliseconds, or -1 if there is none
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            long seconds = Long.parseLong(retryAfter.trim());
+            // Clamp before converting, a huge number of seconds would overflow to a short delay
+            return Math.max(0, Math.min(seconds, Long.MAX_VALUE / 1000)) * 1000;
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, try the date form below
+        }
+        try {
+            SimpleDateFormat httpDateFormat =
+                    new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            long retryAt = httpDateFormat.parse(retryAfter).getTime();
+            return Math.max(0, retryAt - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The first page of the list shown at launch, kept in a small {@link StoreSnapshot} file so the
+ * next cold start can draw it in its first frame. Reading a single mapped page takes far less
+ * than opening the database of the {@link ArticleStore}, let alone a request, so it is read on
+ * the main thread. The loader then refreshes the page in place.
+ */
+
+public final class LaunchSnapshot {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = LaunchSnapshot.class.getSimpleName();
+
+    // Name of the file in the app's files directory
+    private static final String FILE_NAME = "launch.snapshot";
+
+    // Writes the snapshot off the main thread, one at a time and in order
+    private static final ExecutorService sWriter = Executors.newSingleThreadExecutor();
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private LaunchSnapshot() {
+    }
+
+    /**
+     * Return the articles of the launch snapshot, if it was saved for the given query
+     * @param context of the app
+     * @param key is the cache key of the query shown at launch, without a page or page size
+     * @return List<Article>, or null if there is no snapshot of the query
+     */
+    public static List<Article> read(Context context, String key) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            List<StoreSnapshot.Entry> entries = StoreSnapshot.read(file);
+            if (entries.size() == 1 && entries.get(0).getCacheKey().equals(key)) {
+                return entries.get(0).getArticles();
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error reading the launch snapshot", e);
+        }
+        return null;
+    }
+
+    /**
+     * Replace the launch snapshot in the background
+     * @param context of the app
+     * @param key is the cache key of the query shown at launch, without a page or page size
+     * @param articles is the first page of the query
+     */
+    public static void write(Context context, final String key, final List<Article> articles) {
+        final File file = new File(context.getFilesDir(), FILE_NAME);
+        sWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    StoreSnapshot.write(Collections.singletonList(new StoreSnapshot.Entry(key,
+                            System.currentTimeMillis(), null, null, articles)), file);
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error writing the launch snapshot", e);
+                }
+            }
+        });
+    }
+}
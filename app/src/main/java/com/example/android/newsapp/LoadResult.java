@@ -0,0 +1,48 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One step of loading a page of articles, see {@link NewsLoader}. A load delivers LOADING first,
+ * optionally PARTIAL, and ends with ERROR or DONE. The list of articles is never null.
+ */
+
+public class LoadResult {
+
+    private final int mPage;
+    private final LoadState mState;
+    private final List<Article> mArticles;
+
+    /**
+     * Constructs a new {@link LoadResult}
+     * @param page is the 1-based page that is loaded
+     * @param state is the state of the load
+     * @param articles is the articles of the page so far, null for none
+     */
+    public LoadResult(int page, LoadState state, List<Article> articles) {
+        mPage = page;
+        mState = state;
+        mArticles = articles != null
+                ? Collections.unmodifiableList(articles)
+                : Collections.unmodifiableList(new ArrayList<Article>());
+    }
+
+    public int getPage() {
+        return mPage;
+    }
+
+    public LoadState getState() {
+        return mState;
+    }
+
+    public List<Article> getArticles() {
+        return mArticles;
+    }
+
+    // True once the load finished, either way
+    public boolean isFinished() {
+        return mState == LoadState.ERROR || mState == LoadState.DONE;
+    }
+}
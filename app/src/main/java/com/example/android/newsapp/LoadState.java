@@ -0,0 +1,16 @@
+package com.example.android.newsapp;
+
+/**
+ * State of a page load, delivered with every {@link LoadResult}
+ */
+
+public enum LoadState {
+    // The load started, there are no articles yet
+    LOADING,
+    // Stored articles are shown while the fresh ones are still being fetched
+    PARTIAL,
+    // The fetch failed or the device is offline, the articles are the stored ones, if any
+    ERROR,
+    // The load finished with the current articles, an empty list means there are no results
+    DONE
+}
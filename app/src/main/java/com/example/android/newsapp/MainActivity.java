@@ -1,32 +1,86 @@
 package com.example.android.newsapp;
 
+import android.content.Context;
 import android.content.Intent;
-import android.content.Loader;
-import android.app.LoaderManager;
+import android.net.ConnectivityManager;
 import android.net.Uri;
+import android.support.v4.view.MenuItemCompat;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
+import android.view.ViewTreeObserver;
 import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 public class MainActivity extends AppCompatActivity
-        implements LoaderManager.LoaderCallbacks<List<Article>> {
-    public String newsUrlString;
+        implements NewsLoaderFragment.Callbacks {
+    // Tag for the log messages
+    private static final String LOG_TAG = MainActivity.class.getSimpleName();
+
+    // The query of the articles shown, the followed topic or the search
+    private GuardianQuery newsQuery;
     private ViewHolder viewHolder = new ViewHolder();
 
-    // My Guardian API Key
-    private static String API_KEY = "&api-key=820695a2-194d-4363-b7e2-b3e11eb8823b";
+    // Query of the followed topic, shown while there is no search
+    private GuardianQuery topicQuery;
+
+    // Maximum number of pages held by the adapter, pages beyond it are windowed out
+    private static final int MAX_PAGES_IN_MEMORY = 5;
+
+    // Keys of the saved instance state, the pages are saved with ArticleCodec under
+    // STATE_PAGE_PREFIX followed by their index in the window
+    private static final String STATE_FIRST_PAGE = "first_page";
+    private static final String STATE_PAGE_COUNT = "page_count";
+    private static final String STATE_PAGE_PREFIX = "page_";
+    private static final String STATE_END_REACHED = "end_reached";
+    private static final String STATE_SEARCH_QUERY = "search_query";
+    private static final String STATE_PAGE_SIZE = "page_size";
+
+    // The single adapter of the RecyclerView, the window of pages is diffed into it
+    private ArticleAdapter articleAdapter;
+    private LinearLayoutManager layoutManager;
+
+    // Runs the page loads, retained across configuration changes
+    private NewsLoaderFragment loaderFragment;
+
+    // The pages currently held by the adapter, in order, from firstPage up to lastPage
+    private final LinkedList<List<Article>> pages = new LinkedList<>();
+    private int firstPage = 1;
+    private int lastPage = 0;
+
+    // The page being fetched, or 0 if no page is being fetched
+    private int loadingPage = 0;
+
+    // True once the server returned a short page, there is nothing after lastPage
+    private boolean endReached = false;
 
+    // Page size of the list, chosen by the NetworkPolicy when the list starts and kept for all
+    // of its pages, so the pages line up
+    private int pageSize = QueryUtils.PAGE_SIZE;
 
+    // The search submitted by the user, or null while the followed topic is shown
+    private String searchQuery;
+
+    // Articles matching the search in the local index, shown right away and kept after the
+    // server's results for the ones the server did not return
+    private List<Article> localResults = new ArrayList<>();
+
+    // Number of the articles of the pages in the adapter, the local matches after them excluded
+    private int pagedItemCount = 0;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -36,48 +90,360 @@ public class MainActivity extends AppCompatActivity
         // Create and set a ViewHolder for the {@link MainActivity} Views
         RelativeLayout mainRelativeLayout = (RelativeLayout) findViewById(R.id.activity_main);
         viewHolder.problemTextView = (TextView) findViewById(R.id.problem_text_view);
-        viewHolder.articleListView = (ListView) findViewById(R.id.list_view);
+        viewHolder.articleListView = (RecyclerView) findViewById(R.id.list_view);
         viewHolder.progressBar = (ProgressBar) findViewById(R.id.loading_indicator);
         mainRelativeLayout.setTag(viewHolder);
 
-        newsUrlString = QueryUtils.getSearchUrlString("holiday", API_KEY);
+        // Measure the time to the first frame of a launch
+        StartupTracker.onActivityCreated();
+        if (StartupTracker.isTracking()) {
+            final View decorView = getWindow().getDecorView();
+            decorView.getViewTreeObserver().addOnPreDrawListener(
+                    new ViewTreeObserver.OnPreDrawListener() {
+                        @Override
+                        public boolean onPreDraw() {
+                            decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                            StartupTracker.onFirstDraw();
+                            return true;
+                        }
+                    });
+        }
 
-        getLoaderManager().initLoader(0, null, this);
+        // Show the first of the followed topics, the background sync keeps all of them fresh
+        String topic = getResources().getStringArray(R.array.followed_topics)[0];
+        topicQuery = QueryUtils.getSearchQuery(topic);
+        if (savedInstanceState != null) {
+            searchQuery = savedInstanceState.getString(STATE_SEARCH_QUERY);
+            pageSize = savedInstanceState.getInt(STATE_PAGE_SIZE, QueryUtils.PAGE_SIZE);
+        } else {
+            pageSize = choosePageSize();
+        }
+        if (searchQuery != null) {
+            newsQuery = withPageSize(QueryUtils.getSearchQuery(searchQuery));
+            localResults = ArticleIndex.getInstance().search(searchQuery);
+        } else {
+            newsQuery = withPageSize(topicQuery);
+        }
+
+        // Create the {@link ArticleAdapter} once, the window of pages is submitted to it as pages
+        // arrive. Clicking an article links to the article's Guardian URL.
+        articleAdapter = new ArticleAdapter(new ArticleAdapter.OnArticleClickListener() {
+            @Override
+            public void onArticleClick(Article article) {
+                // Create a new Intent to open a web browser with the given URL String
+                Intent articleWebIntent = new Intent(Intent.ACTION_VIEW);
+                articleWebIntent.setData(Uri.parse(article.getUrl()));
+                startActivity(articleWebIntent);
+            }
+        });
+        layoutManager = new LinearLayoutManager(MainActivity.this);
+        viewHolder.articleListView.setLayoutManager(layoutManager);
+        viewHolder.articleListView.setAdapter(articleAdapter);
+
+        // Prefetch the neighbouring page once the user scrolls close to either end of the window
+        viewHolder.articleListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                // Nothing to page while only local search matches are shown
+                if (loadingPage != 0 || pages.isEmpty()) {
+                    return;
+                }
+                // The local matches follow the pages, only the pages decide when to fetch more
+                int totalItemCount = pagedItemCount;
+                // Fetch further ahead on a fast network, the NetworkPolicy decides how far
+                int prefetchDistance = NetworkPolicy.getPrefetchDistance();
+                int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
+                int lastVisibleItem = layoutManager.findLastVisibleItemPosition();
+                if (!endReached && lastVisibleItem >= totalItemCount - 1 - prefetchDistance) {
+                    loadPage(lastPage + 1);
+                } else if (firstPage > 1 && firstVisibleItem <= prefetchDistance) {
+                    loadPage(firstPage - 1);
+                }
+            }
+        });
+
+        // Show the pages saved before a configuration change or the death of the process right
+        // away, the loader then refreshes the first of them in place
+        int startPage = 1;
+        if (savedInstanceState != null && restorePages(savedInstanceState)) {
+            startPage = firstPage;
+        } else if (!localResults.isEmpty()) {
+            showPages();
+        } else if (searchQuery == null) {
+            showLaunchSnapshot();
+        }
+
+        // A load of the same query that survived a configuration change delivers its results
+        // here once the activity is created, only start over if there is none or it failed
+        loaderFragment = NewsLoaderFragment.getInstance(getSupportFragmentManager());
+        LoadResult latestResult = loaderFragment.getLatestResult();
+        if (!newsQuery.equals(loaderFragment.getQuery()) || latestResult == null
+                || latestResult.getState() == LoadState.ERROR) {
+            loadPage(startPage);
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_SEARCH_QUERY, searchQuery);
+        outState.putInt(STATE_PAGE_SIZE, pageSize);
+        if (pages.isEmpty()) {
+            return;
+        }
+        outState.putInt(STATE_FIRST_PAGE, firstPage);
+        outState.putInt(STATE_PAGE_COUNT, pages.size());
+        outState.putBoolean(STATE_END_REACHED, endReached);
+        int index = 0;
+        for (List<Article> pageArticles : pages) {
+            outState.putByteArray(STATE_PAGE_PREFIX + index, ArticleCodec.encode(pageArticles));
+            index++;
+        }
+    }
+
+    /**
+     * Restore the window of pages saved by onSaveInstanceState and show it
+     * @param savedInstanceState is the saved instance state
+     * @return true if pages were restored
+     */
+    private boolean restorePages(Bundle savedInstanceState) {
+        int pageCount = savedInstanceState.getInt(STATE_PAGE_COUNT, 0);
+        if (pageCount == 0) {
+            return false;
+        }
+
+        LinkedList<List<Article>> restoredPages = new LinkedList<>();
+        try {
+            for (int i = 0; i < pageCount; i++) {
+                byte[] encoded = savedInstanceState.getByteArray(STATE_PAGE_PREFIX + i);
+                if (encoded == null) {
+                    return false;
+                }
+                restoredPages.add(ArticleCodec.decode(encoded));
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error restoring the saved articles", e);
+            return false;
+        }
+
+        pages.addAll(restoredPages);
+        firstPage = savedInstanceState.getInt(STATE_FIRST_PAGE, 1);
+        lastPage = firstPage + pageCount - 1;
+        endReached = savedInstanceState.getBoolean(STATE_END_REACHED, false);
+        showPages();
+        return true;
+    }
+
+    /**
+     * Show the first page of the followed topic as it was at the last launch, so the first frame
+     * already has articles while the loader refreshes the page
+     */
+    private void showLaunchSnapshot() {
+        long readStart = NewsMetrics.start();
+        List<Article> launchArticles = LaunchSnapshot.read(this, topicQuery.getCacheKey());
+        NewsMetrics.stop(NewsMetrics.TIMER_STARTUP_SNAPSHOT, readStart);
+        if (launchArticles != null && !launchArticles.isEmpty()) {
+            updateUi(1, launchArticles);
+            StartupTracker.onContentShown(false);
+        }
     }
 
     /**
-     * Update the UI with the given article information
-     * @param articleResults is the ArrayList of {@link Article} objects retrieved from the URL
+     * Show the articles of the local index matching the given text after the pages shown, without
+     * asking the server. Used while the user is typing a search, so the pages and their load are
+     * left alone.
+     * @param query is the text typed so far, no local matches are shown if it is empty
      */
-    private void updateUi(ArrayList<Article> articleResults) {
-        // Create an ArrayList of {@link Article} objects and set the input ArrayList to it
-        final ArrayList<Article> articles = new ArrayList<Article>(articleResults);
+    private void showLocalResults(String query) {
+        localResults = ArticleIndex.getInstance().search(query);
+        showPages();
+    }
+
+    /**
+     * Show the local matches of a submitted search right away, then fetch the server's results,
+     * which are merged in front of them as they arrive
+     * @param query is the submitted search
+     */
+    private void startSearch(String query) {
+        searchQuery = query;
+        pageSize = choosePageSize();
+        newsQuery = withPageSize(QueryUtils.getSearchQuery(query));
+        resetPages();
+        showLocalResults(query);
+        loadPage(1);
+    }
+
+    // Go back from a search to the followed topic
+    private void showTopic() {
+        searchQuery = null;
+        pageSize = choosePageSize();
+        newsQuery = withPageSize(topicQuery);
+        localResults = new ArrayList<>();
+        resetPages();
+        showPages();
+        loadPage(1);
+    }
 
-        // Set the ListView with the ID list_view as visible and all other views as gone
+    // Drop the window of pages and stop fetching pages of the previous query
+    private void resetPages() {
+        loaderFragment.cancel();
+        pages.clear();
+        firstPage = 1;
+        lastPage = 0;
+        loadingPage = 0;
+        endReached = false;
+    }
+
+    // Choose the page size of a new list from the type and the measured quality of the network
+    private int choosePageSize() {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkPolicy.updateConnection(connectivityManager.getActiveNetworkInfo());
+        return NetworkPolicy.getPageSize();
+    }
+
+    // Return the given search query with the page size of the list
+    private GuardianQuery withPageSize(GuardianQuery query) {
+        return query.buildUpon().setPageSize(pageSize).build();
+    }
+
+    // Start fetching the given page of the results, the previous load is cancelled
+    private void loadPage(int page) {
+        loadingPage = page;
+        loaderFragment.load(newsQuery, page);
+    }
+
+    /**
+     * Update the UI with a page of article information
+     * @param page is the page the articles were fetched for
+     * @param articleResults is the List of {@link Article} objects retrieved for the page
+     */
+    private void updateUi(int page, List<Article> articleResults) {
+        long updateStart = NewsMetrics.start();
+
+        // Set the RecyclerView with the ID list_view as visible and all other views as gone
         viewHolder.articleListView.setVisibility(View.VISIBLE);
         viewHolder.problemTextView.setVisibility(View.GONE);
         viewHolder.progressBar.setVisibility(View.GONE);
 
-        // Create a new {@link ArticleAdapter} with {@link Article} objects
-        ArticleAdapter articleAdapter = new ArticleAdapter(MainActivity.this, articles);
+        if (pages.isEmpty()) {
+            // The first page to arrive starts the window
+            firstPage = page;
+            lastPage = page;
+            pages.add(articleResults);
+        } else if (page == lastPage + 1) {
+            // The common case, append the next page and window out the first one if needed
+            lastPage = page;
+            pages.addLast(articleResults);
+            if (pages.size() > MAX_PAGES_IN_MEMORY) {
+                pages.removeFirst();
+                firstPage++;
+            }
+        } else if (page == firstPage - 1) {
+            // Scrolling back up, bring the previous page back and window out the last one
+            firstPage = page;
+            pages.addFirst(articleResults);
+            if (pages.size() > MAX_PAGES_IN_MEMORY) {
+                pages.removeLast();
+                lastPage--;
+                endReached = false;
+            }
+        } else if (page >= firstPage && page <= lastPage) {
+            // A fresher copy of a page already shown, replace it in place
+            pages.set(page - firstPage, articleResults);
+        } else {
+            return;
+        }
+
+        // A fresher copy of the last page may be full where the copy it replaces was not
+        if (page == lastPage) {
+            endReached = articleResults.size() < pageSize;
+        }
 
-        // Set the adapter on the ListView so the list can be populated in the user interface
-        viewHolder.articleListView.setAdapter(articleAdapter);
+        showPages();
+        NewsMetrics.stop(NewsMetrics.TIMER_UPDATE_UI, updateStart);
+    }
+
+    // Hand the whole window to the adapter, the diff keeps the rows on screen in place and only
+    // rebinds the rows that changed
+    private void showPages() {
+        viewHolder.articleListView.setVisibility(View.VISIBLE);
+        ArrayList<Article> window = new ArrayList<>();
+        Set<String> windowUrls = new HashSet<>();
+        for (List<Article> pageArticles : pages) {
+            for (Article article : pageArticles) {
+                window.add(article);
+                windowUrls.add(article.getUrl());
+            }
+        }
+        pagedItemCount = window.size();
+
+        // The local matches of a search follow the server's results, unless the server
+        // returned them as well
+        for (Article article : localResults) {
+            if (windowUrls.add(article.getUrl())) {
+                window.add(article);
+            }
+        }
+        articleAdapter.submitList(window);
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+
+        // The metrics screen is only offered while the metrics are being recorded
+        menu.findItem(R.id.action_metrics).setVisible(NewsMetrics.isEnabled());
 
-        // Create an OnItemClickListener for the article, links to the article's Guardian URL
-        viewHolder.articleListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) MenuItemCompat.getActionView(searchItem);
+
+        // Bring back the search shown before a configuration change, before the listeners are
+        // set so it is not searched again
+        if (searchQuery != null) {
+            MenuItemCompat.expandActionView(searchItem);
+            searchView.setQuery(searchQuery, false);
+            searchView.clearFocus();
+        }
+
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                // Get the URL from the current {@link Article} object
-                Article currentArticle = articles.get(position);
-                String articleUrlString = currentArticle.getUrl();
+            public boolean onQueryTextSubmit(String query) {
+                startSearch(query);
+                return false;
+            }
 
-                // Create a new Intent to open a web browser with the given URL String
-                Intent articleWebIntent = new Intent(Intent.ACTION_VIEW);
-                articleWebIntent.setData(Uri.parse(articleUrlString));
-                startActivity(articleWebIntent);
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                // Search the articles seen so far while the user is typing, clearing the text
+                // clears the local matches
+                showLocalResults(newText);
+                return true;
             }
         });
+        MenuItemCompat.setOnActionExpandListener(searchItem,
+                new MenuItemCompat.OnActionExpandListener() {
+                    @Override
+                    public boolean onMenuItemActionExpand(MenuItem item) {
+                        return true;
+                    }
+
+                    @Override
+                    public boolean onMenuItemActionCollapse(MenuItem item) {
+                        showTopic();
+                        return true;
+                    }
+                });
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
     }
 
     // This method updates the UI in the case of no network connection
@@ -103,44 +469,63 @@ public class MainActivity extends AppCompatActivity
     }
 
     @Override
-    public Loader<List<Article>> onCreateLoader(int id, Bundle args) {
-
-        // Set the ProgressBar with the ID progress_bar as visible and all other views as gone
-        viewHolder.problemTextView.setVisibility(View.GONE);
-        viewHolder.articleListView.setVisibility(View.GONE);
-        viewHolder.progressBar.setVisibility(View.VISIBLE);
-
-        NewsLoader newNewsLoader =
-                new NewsLoader(MainActivity.this, newsUrlString);
-        return newNewsLoader;
-    }
-
-    @Override
-    public void onLoadFinished(Loader<List<Article>> articleLoader, List<Article> articleData) {
-        ArrayList<Article> retrievedList = (ArrayList) articleData;
-
-        // Set the ProgressBar with the ID progress_bar as gone
-        viewHolder.progressBar.setVisibility(View.GONE);
+    public void onLoadResult(LoadResult result) {
+        int page = result.getPage();
+        List<Article> articleData = result.getArticles();
 
-        if (retrievedList == null) {
-            noConnectionUI();
-        } else if (retrievedList.isEmpty()) {
-            noResultsUI();
-        } else {
-            updateUi(retrievedList);
+        switch (result.getState()) {
+            case LOADING:
+                loadingPage = page;
+                // Only show the ProgressBar while there is nothing else on screen
+                if (pages.isEmpty() && localResults.isEmpty()) {
+                    viewHolder.problemTextView.setVisibility(View.GONE);
+                    viewHolder.articleListView.setVisibility(View.GONE);
+                    viewHolder.progressBar.setVisibility(View.VISIBLE);
+                }
+                break;
+            case PARTIAL:
+                // Stored articles, the page is still being refreshed
+                updateUi(page, articleData);
+                StartupTracker.onContentShown(false);
+                break;
+            case ERROR:
+                loadingPage = 0;
+                viewHolder.progressBar.setVisibility(View.GONE);
+                if (!articleData.isEmpty()) {
+                    updateUi(page, articleData);
+                    StartupTracker.onContentShown(false);
+                } else if (pages.isEmpty() && localResults.isEmpty()) {
+                    // Keep the articles already on screen, only report the problem if there
+                    // are none
+                    noConnectionUI();
+                }
+                // Fresh articles are not coming for this launch
+                StartupTracker.stop();
+                break;
+            case DONE:
+                loadingPage = 0;
+                viewHolder.progressBar.setVisibility(View.GONE);
+                StartupTracker.onContentShown(true);
+                if (!articleData.isEmpty()) {
+                    updateUi(page, articleData);
+                    if (page == 1 && searchQuery == null) {
+                        // The next launch starts with this page
+                        LaunchSnapshot.write(this, topicQuery.getCacheKey(), articleData);
+                    }
+                } else {
+                    endReached = true;
+                    if (pages.isEmpty() && localResults.isEmpty()) {
+                        noResultsUI();
+                    }
+                }
+                break;
         }
     }
 
-    @Override
-    public void onLoaderReset(Loader<List<Article>> articleLoader) {
-        ArrayList<Article> blankList = new ArrayList<Article>();
-        updateUi(blankList);
-    }
-
-    // {@link ViewHolder} for the the Views being changed by the {@link NewsLoader}
+    // {@link ViewHolder} for the the Views being changed by the {@link NewsLoader} results
     static class ViewHolder {
         TextView problemTextView;
-        ListView articleListView;
+        RecyclerView articleListView;
         ProgressBar progressBar;
     }
 }
@@ -0,0 +1,119 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Debug screen showing the report of {@link NewsMetrics}. The report can be refreshed, reset and
+ * saved to a file in the app's files directory, from where it can be pulled with adb. The article
+ * store can be exported there as well, to seed other devices with it.
+ */
+
+public class MetricsActivity extends AppCompatActivity {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = MetricsActivity.class.getSimpleName();
+
+    // Name of the file the report is saved to
+    private static final String DUMP_FILE_NAME = "metrics.txt";
+
+    // Name of the file the article store is exported to. It is not the name of the seed file,
+    // so the exporting device does not import its own export on the next launch.
+    private static final String EXPORT_FILE_NAME = "articles-export.seed";
+
+    private TextView mMetricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        mMetricsTextView = (TextView) findViewById(R.id.metrics_text_view);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    // Show the current report of the metrics
+    private void showReport() {
+        mMetricsTextView.setText(NewsMetrics.dump());
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.action_refresh:
+                showReport();
+                return true;
+            case R.id.action_reset:
+                NewsMetrics.reset();
+                showReport();
+                return true;
+            case R.id.action_dump:
+                File dumpFile = new File(getFilesDir(), DUMP_FILE_NAME);
+                try {
+                    NewsMetrics.dump(dumpFile);
+                    Toast.makeText(this, getString(R.string.metrics_dumped,
+                            dumpFile.getAbsolutePath()), Toast.LENGTH_LONG).show();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error saving the metrics", e);
+                    Toast.makeText(this, R.string.metrics_dump_failed, Toast.LENGTH_SHORT).show();
+                }
+                return true;
+            case R.id.action_export:
+                exportArticles();
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
+    // Export the article store on a background thread, it reads every stored article
+    private void exportArticles() {
+        final File exportFile = new File(getFilesDir(), EXPORT_FILE_NAME);
+        final Context appContext = getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean exported;
+                try {
+                    ArticleStore.getInstance(appContext).exportTo(exportFile);
+                    exported = true;
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error exporting the articles", e);
+                    exported = false;
+                }
+                final boolean success = exported;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (success) {
+                            Toast.makeText(appContext, getString(R.string.articles_exported,
+                                    exportFile.getAbsolutePath()), Toast.LENGTH_LONG).show();
+                        } else {
+                            Toast.makeText(appContext, R.string.articles_export_failed,
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
+            }
+        }, "article-store-export").start();
+    }
+}
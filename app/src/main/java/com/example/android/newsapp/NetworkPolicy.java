@@ -0,0 +1,202 @@
+package com.example.android.newsapp;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.telephony.TelephonyManager;
+
+/**
+ * Chooses the page size, the prefetch distance and the timeouts of the requests from the quality
+ * of the network. The type of the active connection gives a first guess, and once a few requests
+ * were measured their latency and throughput move it up or down: a fast Wi-Fi gets larger pages
+ * fetched further ahead, a slow cellular connection smaller and cheaper ones with more patience.
+ *
+ * The measurements are exponentially weighted moving averages over the responses read by
+ * {@link QueryUtils}, they are reset whenever the type of the connection changes.
+ */
+
+public final class NetworkPolicy {
+
+    /**
+     * The settings chosen for a quality of the network
+     */
+    public enum Tier {
+        // pageSize, prefetchDistance, connectTimeoutMillis, readTimeoutMillis
+        POOR(10, 3, 20000, 20000),
+        CELLULAR(15, 5, 15000, 15000),
+        WIFI(20, 8, 15000, 10000),
+        FAST(40, 15, 8000, 8000);
+
+        private final int mPageSize;
+        private final int mPrefetchDistance;
+        private final int mConnectTimeoutMillis;
+        private final int mReadTimeoutMillis;
+
+        Tier(int pageSize, int prefetchDistance, int connectTimeoutMillis,
+             int readTimeoutMillis) {
+            mPageSize = pageSize;
+            mPrefetchDistance = prefetchDistance;
+            mConnectTimeoutMillis = connectTimeoutMillis;
+            mReadTimeoutMillis = readTimeoutMillis;
+        }
+
+        // Number of articles requested per page
+        public int getPageSize() {
+            return mPageSize;
+        }
+
+        // The next page is fetched once the user scrolls within this many articles of the end
+        public int getPrefetchDistance() {
+            return mPrefetchDistance;
+        }
+
+        public int getConnectTimeoutMillis() {
+            return mConnectTimeoutMillis;
+        }
+
+        public int getReadTimeoutMillis() {
+            return mReadTimeoutMillis;
+        }
+    }
+
+    // Weight of the newest sample in the moving averages
+    private static final double SMOOTHING = 0.3;
+
+    // The measurements only override the connection type after this many samples
+    private static final int MIN_SAMPLES = 3;
+
+    // Responses smaller than this measure the latency rather than the throughput
+    private static final long MIN_THROUGHPUT_BYTES = 4 * 1024;
+
+    // Bounds of the measured tiers, latency in milliseconds, throughput in bytes per second
+    private static final long POOR_LATENCY_MILLIS = 1500;
+    private static final long POOR_THROUGHPUT = 30 * 1024;
+    private static final long SLOW_LATENCY_MILLIS = 600;
+    private static final long SLOW_THROUGHPUT = 100 * 1024;
+    private static final long FAST_LATENCY_MILLIS = 200;
+    private static final long FAST_THROUGHPUT = 500 * 1024;
+
+    // Tier of the active connection by its type alone, CELLULAR while the type is not known
+    private static Tier sConnectionTier = Tier.CELLULAR;
+    private static int sConnectionType = -1;
+
+    // Moving averages of the measured requests, -1 until there is a sample
+    private static double sLatencyMillis = -1;
+    private static double sThroughput = -1;
+    private static int sLatencySamples;
+    private static int sThroughputSamples;
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private NetworkPolicy() {
+    }
+
+    /**
+     * Update the type of the active connection, the measurements of a previous connection are
+     * forgotten. Called whenever the connectivity is checked.
+     * @param networkInfo is the active network, may be null
+     */
+    public static synchronized void updateConnection(NetworkInfo networkInfo) {
+        int type = networkInfo != null ? networkInfo.getType() : -1;
+        Tier tier = tierOf(networkInfo);
+        if (type != sConnectionType || tier != sConnectionTier) {
+            sConnectionType = type;
+            sConnectionTier = tier;
+            sLatencyMillis = -1;
+            sThroughput = -1;
+            sLatencySamples = 0;
+            sThroughputSamples = 0;
+        }
+    }
+
+    /**
+     * Record the measurements of a successful request
+     * @param latencyMillis is the time from opening the connection to the response headers
+     * @param byteCount is the number of bytes of the response body
+     * @param readMillis is the time spent reading the response body
+     */
+    public static synchronized void recordRequest(long latencyMillis, long byteCount,
+                                                  long readMillis) {
+        sLatencyMillis = average(sLatencyMillis, latencyMillis);
+        sLatencySamples++;
+        if (byteCount >= MIN_THROUGHPUT_BYTES) {
+            sThroughput = average(sThroughput, byteCount * 1000.0 / Math.max(1, readMillis));
+            sThroughputSamples++;
+        }
+    }
+
+    /**
+     * Return the tier of the network: the tier of the connection type, moved down if the
+     * requests are measured to be slow and up to FAST on a Wi-Fi measured to be fast
+     * @return Tier
+     */
+    public static synchronized Tier getTier() {
+        Tier tier = sConnectionTier;
+        boolean latencyKnown = sLatencySamples >= MIN_SAMPLES;
+        boolean throughputKnown = sThroughputSamples >= MIN_SAMPLES;
+
+        if ((latencyKnown && sLatencyMillis > POOR_LATENCY_MILLIS)
+                || (throughputKnown && sThroughput < POOR_THROUGHPUT)) {
+            return Tier.POOR;
+        }
+        if (tier == Tier.WIFI && ((latencyKnown && sLatencyMillis > SLOW_LATENCY_MILLIS)
+                || (throughputKnown && sThroughput < SLOW_THROUGHPUT))) {
+            // A congested Wi-Fi, treat it like a cellular connection
+            return Tier.CELLULAR;
+        }
+        if (tier == Tier.WIFI && latencyKnown && throughputKnown
+                && sLatencyMillis < FAST_LATENCY_MILLIS && sThroughput > FAST_THROUGHPUT) {
+            return Tier.FAST;
+        }
+        return tier;
+    }
+
+    // Number of articles to request per page for a new list
+    public static int getPageSize() {
+        return getTier().getPageSize();
+    }
+
+    // The next page is fetched once the user scrolls within this many articles of the end
+    public static int getPrefetchDistance() {
+        return getTier().getPrefetchDistance();
+    }
+
+    /**
+     * Return the given settings with the timeouts of the current tier
+     * @param httpConfig is the settings to adjust
+     * @return HttpConfig
+     */
+    public static HttpConfig applyTimeouts(HttpConfig httpConfig) {
+        Tier tier = getTier();
+        return httpConfig.withTimeouts(tier.getConnectTimeoutMillis(),
+                tier.getReadTimeoutMillis());
+    }
+
+    // Return the tier of a connection by its type and, for cellular, its generation
+    private static Tier tierOf(NetworkInfo networkInfo) {
+        if (networkInfo == null) {
+            return Tier.CELLULAR;
+        }
+        switch (networkInfo.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+            case ConnectivityManager.TYPE_ETHERNET:
+                return Tier.WIFI;
+            case ConnectivityManager.TYPE_MOBILE:
+                switch (networkInfo.getSubtype()) {
+                    case TelephonyManager.NETWORK_TYPE_GPRS:
+                    case TelephonyManager.NETWORK_TYPE_EDGE:
+                    case TelephonyManager.NETWORK_TYPE_CDMA:
+                    case TelephonyManager.NETWORK_TYPE_1xRTT:
+                    case TelephonyManager.NETWORK_TYPE_IDEN:
+                        // 2G
+                        return Tier.POOR;
+                    default:
+                        return Tier.CELLULAR;
+                }
+            default:
+                return Tier.CELLULAR;
+        }
+    }
+
+    private static double average(double average, double sample) {
+        return average < 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
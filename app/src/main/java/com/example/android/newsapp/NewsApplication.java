@@ -0,0 +1,50 @@
+package com.example.android.newsapp;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Process;
+
+/**
+ * The {@link Application} of the NewsApp, sets up the process wide state shared by every screen
+ */
+
+public class NewsApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupTracker.onProcessStart();
+
+        // Record the hot path metrics in debug builds only, release builds skip them for free
+        NewsMetrics.setEnabled(BuildConfig.DEBUG);
+
+        // Everything else does disk or system service I/O that the first frame does not need, so
+        // it runs on a low priority thread instead of delaying the launch
+        final Context appContext = getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                initInBackground(appContext);
+            }
+        }, "startup-init").start();
+    }
+
+    // The initialization deferred off the main thread by onCreate
+    private static void initInBackground(Context context) {
+        // Open the store early, importing the seed snapshot of a provisioned device before the
+        // first screen asks for articles
+        ArticleStore.getInstance(context);
+
+        // Keep the followed topics fresh in the background
+        NewsSyncService.schedule(context);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        ArticleCache.getInstance(this).onTrimMemory(level);
+        // The pooled response buffers are cheap to allocate again, drop them at any level
+        ResponseBuffer.trimPool();
+    }
+}
@@ -1,45 +1,205 @@
 package com.example.android.newsapp;
 
-import android.content.AsyncTaskLoader;
 import android.content.Context;
 import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Created by ndoor on 11/30/2016.
+ * Loads a single page of articles from the {@link ArticleCache}, the {@link ArticleStore} and the
+ * server, and keeps the loaded articles in the cache until they need a refresh. The load runs on
+ * the calling thread, which must be a background thread, see {@link NewsLoaderFragment} for the
+ * one running it for the activity. Interrupting the thread cancels the load and its request.
  */
 
-public class NewsLoader extends AsyncTaskLoader<List<Article>> {
-    String mUrl;
+public class NewsLoader {
 
-    public NewsLoader(Context context, String url) {
-        super(context);
-        mUrl = url;
+    /**
+     * Receives the intermediate results of a load, on the loading thread
+     */
+    public interface Listener {
+        void onResult(LoadResult result);
     }
 
-    // Check to see if the network is connected.
+    private final Context mContext;
+
+    // The query of the page this loader fetches, and the key its articles are stored under
+    private final GuardianQuery mQuery;
+    private final String mKey;
+
+    // The 1-based page of the results this loader fetches
+    private final int mPage;
+
+    /**
+     * Constructs a new {@link NewsLoader}
+     * @param context of the app
+     * @param pageQuery is the query of the page, created by QueryUtils.getPageQuery
+     */
+    public NewsLoader(Context context, GuardianQuery pageQuery) {
+        mContext = context.getApplicationContext();
+        mQuery = pageQuery;
+        mKey = pageQuery.getCacheKey();
+        mPage = pageQuery.getPage();
+    }
+
+    public int getPage() {
+        return mPage;
+    }
+
+    // Check to see if the network is connected, and let the NetworkPolicy know its type
     public boolean isNetworkAvailable(final Context context) {
         final ConnectivityManager connectivityManager = ((ConnectivityManager)
                 context.getSystemService(Context.CONNECTIVITY_SERVICE));
-        return connectivityManager.getActiveNetworkInfo() != null &&
-                connectivityManager.getActiveNetworkInfo().isConnected();
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        NetworkPolicy.updateConnection(networkInfo);
+        return networkInfo != null && networkInfo.isConnected();
     }
 
-    @Override
-    protected void onStartLoading() {
-        forceLoad();
+    /**
+     * Load the page. Stale stored articles are handed to the listener as a PARTIAL result while
+     * they are being refreshed.
+     * @param listener receives the PARTIAL result
+     * @return the final LoadResult, ERROR or DONE
+     * @throws InterruptedException if the thread was interrupted, the load is then abandoned
+     */
+    public LoadResult load(Listener listener) throws InterruptedException {
+        long loadStart = NewsMetrics.start();
+        try {
+            return loadArticles(listener);
+        } finally {
+            NewsMetrics.stop(NewsMetrics.TIMER_LOAD, loadStart);
+        }
     }
 
-    @Override
-    public List<Article> loadInBackground() {
-        if (isNetworkAvailable(getContext())) {
-            // Get the information from the server.
-            ArrayList<Article> articleResults = QueryUtils.fetchArticleData(mUrl);
-            return articleResults;
+    // Load the articles from the memory cache, the store and the server, see load
+    private LoadResult loadArticles(Listener listener) throws InterruptedException {
+        // Articles loaded moments ago are still in memory
+        ArticleCache articleCache = ArticleCache.getInstance(mContext);
+        List<Article> cachedArticles = articleCache.getArticles(mKey);
+        if (cachedArticles != null) {
+            return new LoadResult(mPage, LoadState.DONE, cachedArticles);
+        }
+
+        ArticleStore articleStore = ArticleStore.getInstance(mContext);
+
+        // Read whatever the store holds for the query first, it is shown even when offline
+        long storeStart = NewsMetrics.start();
+        ArrayList<Article> storedArticles = articleStore.getArticles(mKey);
+        NewsMetrics.stop(NewsMetrics.TIMER_STORE_READ, storeStart);
+        QueryUtils.trackNewestPublicationTime(mQuery, storedArticles);
+
+        // Recently fetched articles are shown without asking the server again
+        if (storedArticles != null && articleStore.isFresh(mKey)) {
+            NewsMetrics.increment(NewsMetrics.COUNTER_STORE_FRESH);
+            long age = System.currentTimeMillis() - articleStore.getFetchedAt(mKey);
+            articleCache.putArticles(mKey, storedArticles,
+                    ArticleStore.FRESH_TTL_MILLIS - age);
+            return new LoadResult(mPage, LoadState.DONE, storedArticles);
+        }
+
+        if (!isNetworkAvailable(mContext)) {
+            NewsMetrics.increment(NewsMetrics.COUNTER_OFFLINE);
+            return new LoadResult(mPage, LoadState.ERROR, storedArticles);
+        }
+
+        // Show the stale articles right away, then refresh them from the server
+        if (storedArticles != null && !storedArticles.isEmpty()) {
+            NewsMetrics.increment(NewsMetrics.COUNTER_STORE_STALE);
+            listener.onResult(new LoadResult(mPage, LoadState.PARTIAL, storedArticles));
+        }
+
+        // New articles show up on the first page, only ask for the ones published since the
+        // newest stored article
+        if (mPage == 1 && storedArticles != null && !storedArticles.isEmpty()) {
+            GuardianQuery deltaQuery = QueryUtils.getDeltaQuery(mQuery);
+            if (deltaQuery != null) {
+                return loadNewArticles(articleStore, articleCache, storedArticles, deltaQuery);
+            }
+        }
+
+        // Get the information from the server, revalidating the stored articles if there are any.
+        // Identical requests from other loaders or the sync share a single HTTP call.
+        FetchResult fetchResult;
+        if (storedArticles != null) {
+            fetchResult = RequestCoalescer.getInstance().fetch(mQuery,
+                    articleStore.getETag(mKey), articleStore.getLastModified(mKey));
+        } else {
+            fetchResult = RequestCoalescer.getInstance().fetch(mQuery, null, null);
+        }
+
+        if (fetchResult.isNotModified()) {
+            // The server confirmed the stored articles are current, nothing was downloaded
+            articleStore.markFetched(mKey);
+            articleCache.putArticles(mKey, storedArticles, ArticleStore.FRESH_TTL_MILLIS);
+            return new LoadResult(mPage, LoadState.DONE, storedArticles);
+        }
+
+        ArrayList<Article> articleResults = fetchResult.getArticles();
+        if (articleResults == null) {
+            // The request failed, keep showing the stored articles
+            return new LoadResult(mPage, LoadState.ERROR, storedArticles);
+        }
+
+        long storeWriteStart = NewsMetrics.start();
+        articleStore.putArticles(mKey, articleResults, fetchResult.getETag(),
+                fetchResult.getLastModified());
+        NewsMetrics.stop(NewsMetrics.TIMER_STORE_WRITE, storeWriteStart);
+        QueryUtils.trackNewestPublicationTime(mQuery, articleResults);
+        articleCache.putArticles(mKey, articleResults, ArticleStore.FRESH_TTL_MILLIS);
+        return new LoadResult(mPage, LoadState.DONE, articleResults);
+    }
+
+    /**
+     * Refresh the stored articles with the articles published since the newest of them, which
+     * are merged in front of the stored ones. Usually only a few articles are downloaded and
+     * parsed instead of the whole page.
+     * @param articleStore is the store holding the articles
+     * @param articleCache is the memory cache the loaded articles are put in
+     * @param storedArticles is the stored articles of the page, not empty
+     * @param deltaQuery is the delta query of the page
+     * @return the final LoadResult, ERROR or DONE
+     * @throws InterruptedException if the thread was interrupted, the load is then abandoned
+     */
+    private LoadResult loadNewArticles(ArticleStore articleStore, ArticleCache articleCache,
+                                       ArrayList<Article> storedArticles,
+                                       GuardianQuery deltaQuery)
+            throws InterruptedException {
+        NewsMetrics.increment(NewsMetrics.COUNTER_DELTA);
+        FetchResult fetchResult = RequestCoalescer.getInstance().fetch(deltaQuery, null, null);
+        ArrayList<Article> newArticles = fetchResult.getArticles();
+        if (newArticles == null) {
+            // The request failed, keep showing the stored articles
+            return new LoadResult(mPage, LoadState.ERROR, storedArticles);
+        }
+        NewsMetrics.add(NewsMetrics.COUNTER_DELTA_ARTICLES, newArticles.size());
+
+        int pageSize = QueryUtils.getPageSize(mQuery);
+        ArrayList<Article> articleResults;
+        if (newArticles.size() >= pageSize) {
+            // A whole page of new articles, there may be even more, so the page starts over
+            articleResults = QueryUtils.mergeNewArticles(Collections.<Article>emptyList(),
+                    newArticles, pageSize);
         } else {
-            return null;
+            articleResults = QueryUtils.mergeNewArticles(storedArticles, newArticles,
+                    Math.max(storedArticles.size(), pageSize));
         }
+        if (articleResults == null) {
+            // Nothing was published since, the stored articles are current
+            articleStore.markFetched(mKey);
+            articleCache.putArticles(mKey, storedArticles, ArticleStore.FRESH_TTL_MILLIS);
+            return new LoadResult(mPage, LoadState.DONE, storedArticles);
+        }
+
+        // The validators of the full page do not describe the merged page, so none are kept
+        long storeWriteStart = NewsMetrics.start();
+        articleStore.putArticles(mKey, articleResults, null, null);
+        NewsMetrics.stop(NewsMetrics.TIMER_STORE_WRITE, storeWriteStart);
+        QueryUtils.trackNewestPublicationTime(mQuery, articleResults);
+        articleCache.putArticles(mKey, articleResults, ArticleStore.FRESH_TTL_MILLIS);
+        return new LoadResult(mPage, LoadState.DONE, articleResults);
     }
-}
\ No newline at end of file
+}
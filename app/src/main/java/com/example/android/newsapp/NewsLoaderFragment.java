@@ -0,0 +1,212 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless fragment running the page loads of {@link MainActivity} on a small pool of background
+ * threads. It is retained across configuration changes, so a load keeps running through a
+ * rotation and its results are delivered to the new activity instead of being fetched again.
+ * The latest result of the current load is kept and delivered again to every new activity.
+ *
+ * Starting a load cancels the previous one, and the current load is cancelled, connection
+ * included, once the activity is finished for good. Results of a cancelled load are dropped.
+ * All of the public methods must be called on the main thread.
+ */
+
+public class NewsLoaderFragment extends Fragment {
+
+    /**
+     * Receives the results of the loads, on the main thread. Implemented by the activity.
+     */
+    public interface Callbacks {
+        void onLoadResult(LoadResult result);
+    }
+
+    // Tag of the fragment in the FragmentManager
+    private static final String TAG = "news_loader";
+
+    // A cancelled load may still be finishing its store read while the next one starts
+    private static final int THREAD_COUNT = 2;
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(THREAD_COUNT);
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private Context mContext;
+
+    // The activity, from the moment it is created until it is detached
+    private Callbacks mCallbacks;
+
+    // Incremented by every load and cancel, results of older loads are dropped
+    private int mGeneration;
+
+    // The query of the current load, null if there is none
+    private GuardianQuery mQuery;
+    private Future<?> mFuture;
+
+    // The latest result of the current load, or null
+    private LoadResult mLatest;
+
+    // Start of the current load for the metrics, 0 once its first result was delivered
+    private long mLoadStart;
+
+    /**
+     * Return the loader fragment of the activity, adding it if the activity does not have one
+     * yet. An activity recreated after a configuration change gets the retained one back.
+     * @param fragmentManager is the FragmentManager of the activity
+     * @return NewsLoaderFragment
+     */
+    public static NewsLoaderFragment getInstance(FragmentManager fragmentManager) {
+        NewsLoaderFragment fragment =
+                (NewsLoaderFragment) fragmentManager.findFragmentByTag(TAG);
+        if (fragment == null) {
+            fragment = new NewsLoaderFragment();
+            fragmentManager.beginTransaction().add(fragment, TAG).commitNow();
+        }
+        return fragment;
+    }
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRetainInstance(true);
+    }
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+        mContext = context.getApplicationContext();
+    }
+
+    @Override
+    public void onActivityCreated(Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        // The activity finished setting up its views, hand it where the current load is at
+        mCallbacks = (Callbacks) getActivity();
+        if (mLatest != null) {
+            mCallbacks.onLoadResult(mLatest);
+        }
+    }
+
+    @Override
+    public void onDetach() {
+        super.onDetach();
+        mCallbacks = null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Only called once the activity is finished, a configuration change keeps the fragment
+        cancel();
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Start loading the given page of the given query, cancelling the current load. LOADING is
+     * delivered right away, unless the {@link ArticleCache} holds the page, which is then
+     * delivered as DONE with the next message of the main thread.
+     * @param query is the search query with its page size, without a page
+     * @param page is the 1-based page to load
+     */
+    public void load(GuardianQuery query, int page) {
+        cancel();
+        final int generation = mGeneration;
+        mQuery = query;
+        mLoadStart = NewsMetrics.start();
+
+        GuardianQuery pageQuery =
+                QueryUtils.getPageQuery(query, page, QueryUtils.getPageSize(query));
+
+        // A page loaded moments ago is delivered without a round trip to a loading thread. It is
+        // posted rather than delivered in line, load may be called from a scroll callback.
+        List<Article> cachedArticles =
+                ArticleCache.getInstance(mContext).getArticles(pageQuery.getCacheKey());
+        if (cachedArticles != null) {
+            post(generation, new LoadResult(page, LoadState.DONE, cachedArticles));
+            return;
+        }
+
+        final NewsLoader loader = new NewsLoader(mContext, pageQuery);
+        publish(generation, new LoadResult(page, LoadState.LOADING, null));
+        mFuture = mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    LoadResult result = loader.load(new NewsLoader.Listener() {
+                        @Override
+                        public void onResult(LoadResult partialResult) {
+                            post(generation, partialResult);
+                        }
+                    });
+                    post(generation, result);
+                } catch (InterruptedException e) {
+                    // The load was cancelled, nobody is waiting for its result
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancel the current load, if any, including its request unless another caller shares it
+     */
+    public void cancel() {
+        mGeneration++;
+        if (mFuture != null) {
+            mFuture.cancel(true);
+            mFuture = null;
+        }
+        mQuery = null;
+        mLatest = null;
+    }
+
+    // Return the query of the current or last finished load, or null if it was cancelled
+    public GuardianQuery getQuery() {
+        return mQuery;
+    }
+
+    // Return the latest result of the current or last finished load, or null
+    public LoadResult getLatestResult() {
+        return mLatest;
+    }
+
+    // Hand a result of the loading thread to the main thread
+    private void post(final int generation, final LoadResult result) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                publish(generation, result);
+            }
+        });
+    }
+
+    // Keep and deliver a result, unless its load was cancelled meanwhile
+    private void publish(int generation, LoadResult result) {
+        if (generation != mGeneration) {
+            return;
+        }
+
+        // Time until the user sees something, stored or fresh
+        if (result.getState() != LoadState.LOADING && mLoadStart != 0) {
+            NewsMetrics.stop(NewsMetrics.TIMER_FIRST_RESULT, mLoadStart);
+            mLoadStart = 0;
+        }
+        if (result.isFinished()) {
+            mFuture = null;
+        }
+
+        mLatest = result;
+        if (mCallbacks != null) {
+            mCallbacks.onLoadResult(result);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.android.newsapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight in-process metrics for the hot paths: counters, histograms and timers that record
+ * into histograms. When disabled every call returns after reading a single volatile flag, so the
+ * instrumentation can stay in release builds.
+ *
+ * Timers are used like this:
+ * <pre>
+ *     long start = NewsMetrics.start();
+ *     ...
+ *     NewsMetrics.stop(NewsMetrics.TIMER_PARSE, start);
+ * </pre>
+ */
+
+public final class NewsMetrics {
+
+    // Names of the timers, recorded in milliseconds
+    public static final String TIMER_FETCH = "fetch.total";
+    public static final String TIMER_CONNECT = "http.connect";
+    public static final String TIMER_READ = "http.read";
+    public static final String TIMER_PARSE = "json.parse";
+    public static final String TIMER_BACKOFF = "http.backoff";
+    public static final String TIMER_STORE_READ = "store.read";
+    public static final String TIMER_STORE_WRITE = "store.write";
+    public static final String TIMER_STORE_IMPORT = "store.import";
+    public static final String TIMER_LOAD = "loader.total";
+    public static final String TIMER_FIRST_RESULT = "loader.first_result";
+    public static final String TIMER_UPDATE_UI = "ui.update";
+    public static final String TIMER_STARTUP_SNAPSHOT = "startup.snapshot_read";
+    public static final String TIMER_STARTUP_FIRST_DRAW = "startup.first_draw";
+    public static final String TIMER_STARTUP_FIRST_CONTENT = "startup.first_content";
+    public static final String TIMER_STARTUP_FRESH_CONTENT = "startup.fresh_content";
+
+    // Names of the counters
+    public static final String COUNTER_REQUESTS = "http.requests";
+    public static final String COUNTER_RETRIES = "http.retries";
+    public static final String COUNTER_NOT_MODIFIED = "http.not_modified";
+    public static final String COUNTER_ERRORS = "http.errors";
+    public static final String COUNTER_CIRCUIT_OPEN = "http.circuit_open";
+    public static final String COUNTER_STORE_FRESH = "loader.store_fresh";
+    public static final String COUNTER_STORE_STALE = "loader.store_stale";
+    public static final String COUNTER_OFFLINE = "loader.offline";
+    public static final String COUNTER_DELTA = "loader.delta";
+    public static final String COUNTER_DELTA_ARTICLES = "loader.delta_articles";
+    public static final String COUNTER_CACHE_HITS = "cache.hits";
+    public static final String COUNTER_CACHE_MISSES = "cache.misses";
+    public static final String COUNTER_CACHE_EXPIRED = "cache.expired";
+    public static final String COUNTER_CACHE_EVICTIONS = "cache.evictions";
+
+    // Names of the plain histograms
+    public static final String HISTOGRAM_BYTES = "http.bytes";
+    public static final String HISTOGRAM_ARTICLES = "fetch.articles";
+
+    private static volatile boolean sEnabled;
+
+    private static final Map<String, AtomicLong> sCounters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> sHistograms = new ConcurrentHashMap<>();
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private NewsMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    // Turn the recording on or off, what was recorded so far is kept
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * Start a timer
+     * @return the start time to pass to {@link #stop}, or 0 when the metrics are disabled
+     */
+    public static long start() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stop a timer and record its duration in milliseconds
+     * @param timer is the name of the timer
+     * @param startNanos is the value returned by {@link #start}
+     */
+    public static void stop(String timer, long startNanos) {
+        if (sEnabled && startNanos != 0) {
+            record(timer, (System.nanoTime() - startNanos) / 1000000);
+        }
+    }
+
+    // Increment a counter by one
+    public static void increment(String counter) {
+        add(counter, 1);
+    }
+
+    // Add a value to a counter
+    public static void add(String counter, long delta) {
+        if (!sEnabled) {
+            return;
+        }
+        AtomicLong value = sCounters.get(counter);
+        if (value == null) {
+            synchronized (sCounters) {
+                value = sCounters.get(counter);
+                if (value == null) {
+                    value = new AtomicLong();
+                    sCounters.put(counter, value);
+                }
+            }
+        }
+        value.addAndGet(delta);
+    }
+
+    // Record a value in a histogram
+    public static void record(String histogram, long value) {
+        if (!sEnabled) {
+            return;
+        }
+        Histogram values = sHistograms.get(histogram);
+        if (values == null) {
+            synchronized (sHistograms) {
+                values = sHistograms.get(histogram);
+                if (values == null) {
+                    values = new Histogram();
+                    sHistograms.put(histogram, values);
+                }
+            }
+        }
+        values.record(value);
+    }
+
+    // Forget everything recorded so far
+    public static void reset() {
+        sCounters.clear();
+        sHistograms.clear();
+    }
+
+    /**
+     * Return a plain text report of all of the counters and histograms, sorted by name
+     * @return report String
+     */
+    public static String dump() {
+        StringBuilder report = new StringBuilder();
+        report.append("Counters\n");
+        for (Map.Entry<String, AtomicLong> counter : new TreeMap<>(sCounters).entrySet()) {
+            report.append("  ").append(counter.getKey()).append(" = ")
+                    .append(counter.getValue().get()).append('\n');
+        }
+        report.append("\nHistograms (timers in ms)\n");
+        for (Map.Entry<String, Histogram> histogram : new TreeMap<>(sHistograms).entrySet()) {
+            report.append("  ").append(histogram.getKey()).append(' ')
+                    .append(histogram.getValue().summary()).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Write the report of {@link #dump()} to a file, replacing its previous content
+     * @param file is the file to write
+     * @throws IOException if the file could not be written
+     */
+    public static void dump(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(dump());
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Histogram of non-negative values in power of two buckets. Percentiles are reported as the
+     * upper bound of the bucket they fall in, exact count, sum, min and max are kept as well.
+     */
+    static class Histogram {
+        // Bucket i holds the values v with 2^(i-1) <= v < 2^i, bucket 0 holds 0
+        private final long[] mBuckets = new long[64];
+        private long mCount;
+        private long mSum;
+        private long mMin = Long.MAX_VALUE;
+        private long mMax = Long.MIN_VALUE;
+
+        synchronized void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            mBuckets[64 - Long.numberOfLeadingZeros(value)]++;
+            mCount++;
+            mSum += value;
+            mMin = Math.min(mMin, value);
+            mMax = Math.max(mMax, value);
+        }
+
+        // Upper bound of the bucket holding the given percentile
+        private long percentile(double percentile) {
+            long rank = (long) Math.ceil(mCount * percentile);
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    return i == 0 ? 0 : Math.min(mMax, (1L << i) - 1);
+                }
+            }
+            return mMax;
+        }
+
+        synchronized String summary() {
+            if (mCount == 0) {
+                return "count=0";
+            }
+            return "count=" + mCount
+                    + " mean=" + (mSum / mCount)
+                    + " min=" + mMin
+                    + " p50<=" + percentile(0.5)
+                    + " p90<=" + percentile(0.9)
+                    + " p99<=" + percentile(0.99)
+                    + " max=" + mMax;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.newsapp;
+
+import android.app.AlarmManager;
+import android.app.IntentService;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.SystemClock;
+import android.support.v4.net.ConnectivityManagerCompat;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Background sync of the followed topics into the {@link ArticleStore}, so opening the app shows
+ * fresh articles without waiting for the network. All of the topics are fetched together in one
+ * run, and runs are skipped unless the device is connected to an unmetered network. The alarm is
+ * scheduled again by {@link SyncScheduleReceiver} after a reboot or an update of the app.
+ */
+
+public class NewsSyncService extends IntentService {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = NewsSyncService.class.getSimpleName();
+
+    // Name and keys of the SharedPreferences the statistics of the last run are kept in
+    public static final String PREFS_SYNC_STATS = "sync_stats";
+    public static final String KEY_LAST_SYNC_TIME = "last_sync_time";
+    public static final String KEY_LAST_SYNC_DURATION = "last_sync_duration_ms";
+    public static final String KEY_LAST_SYNC_BYTES = "last_sync_bytes";
+
+    // Time between two runs, the system may shift runs to batch them with other alarms
+    private static final long SYNC_INTERVAL_MILLIS = AlarmManager.INTERVAL_HOUR * 3;
+
+    public NewsSyncService() {
+        super(LOG_TAG);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupTracker.onServiceCreated();
+    }
+
+    /**
+     * Schedule the sync to run every few hours. The alarm is inexact and does not wake the
+     * device, so the system batches it into a window in which the device is awake anyway.
+     * Scheduling again replaces the existing alarm.
+     * @param context of the app
+     */
+    public static void schedule(Context context) {
+        AlarmManager alarmManager =
+                (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent syncIntent = PendingIntent.getService(context, 0,
+                new Intent(context, NewsSyncService.class), PendingIntent.FLAG_UPDATE_CURRENT);
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + SYNC_INTERVAL_MILLIS,
+                SYNC_INTERVAL_MILLIS, syncIntent);
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        // Defer the work to the next run unless it is cheap for the user right now. Being plugged
+        // in does not make a metered network free, and a run without any network would only
+        // retry, back off and open the circuit breaker the app's screens share.
+        if (!isNetworkUnmetered()) {
+            Log.i(LOG_TAG, "Sync deferred, waiting for an unmetered network");
+            return;
+        }
+
+        final ArticleStore articleStore = ArticleStore.getInstance(this);
+        final ArticleCache articleCache = ArticleCache.getInstance(this);
+        final long[] byteCount = {0};
+        long startTime = SystemClock.elapsedRealtime();
+
+        // Fetch the first page of every followed topic, the same query MainActivity starts with
+        // on this network. Stored pages are revalidated, an unchanged page downloads nothing.
+        int pageSize = NetworkPolicy.getPageSize();
+        List<GuardianSource> sources = new ArrayList<>();
+        for (String topic : getResources().getStringArray(R.array.followed_topics)) {
+            GuardianQuery query =
+                    QueryUtils.getPageQuery(QueryUtils.getSearchQuery(topic), 1, pageSize);
+            String key = query.getCacheKey();
+            sources.add(new GuardianSource(query, articleStore.getETag(key),
+                    articleStore.getLastModified(key)));
+        }
+
+        FetchEngine fetchEngine = new FetchEngine();
+        try {
+            fetchEngine.fetchAll(sources, new FetchEngine.Listener<GuardianSource>() {
+                @Override
+                public void onSourceFinished(GuardianSource source, FetchResult fetchResult,
+                                             List<Article> mergedArticles, int remaining) {
+                    GuardianQuery query = source.getQuery();
+                    byteCount[0] += fetchResult.getByteCount();
+                    if (fetchResult.isNotModified()) {
+                        // The stored articles are current, only their fetch time changes
+                        articleStore.markFetched(query.getCacheKey());
+                    } else if (fetchResult.getArticles() != null) {
+                        articleStore.putArticles(query.getCacheKey(), fetchResult.getArticles(),
+                                fetchResult.getETag(), fetchResult.getLastModified());
+                        QueryUtils.trackNewestPublicationTime(query, fetchResult.getArticles());
+                        // The cached page, if any, is older than the stored one now
+                        articleCache.remove(query.getCacheKey());
+                    }
+                }
+            });
+        } catch (InterruptedException e) {
+            Log.e(LOG_TAG, "Sync interrupted", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            fetchEngine.shutdown();
+        }
+
+        long duration = SystemClock.elapsedRealtime() - startTime;
+        Log.i(LOG_TAG, "Synced " + sources.size() + " topics in " + duration + " ms, "
+                + byteCount[0] + " bytes");
+
+        SharedPreferences syncStats = getSharedPreferences(PREFS_SYNC_STATS, MODE_PRIVATE);
+        syncStats.edit()
+                .putLong(KEY_LAST_SYNC_TIME, System.currentTimeMillis())
+                .putLong(KEY_LAST_SYNC_DURATION, duration)
+                .putLong(KEY_LAST_SYNC_BYTES, byteCount[0])
+                .apply();
+    }
+
+    // Check whether the active network is connected and not metered, like most Wi-Fi
+    private boolean isNetworkUnmetered() {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        NetworkPolicy.updateConnection(networkInfo);
+        return networkInfo != null && networkInfo.isConnected()
+                && !ConnectivityManagerCompat.isActiveNetworkMetered(connectivityManager);
+    }
+}
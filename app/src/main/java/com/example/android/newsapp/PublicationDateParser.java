@@ -0,0 +1,103 @@
+package com.example.android.newsapp;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Parses the ISO 8601 publication dates of the Guardian API and formats them for display.
+ * SimpleDateFormat is not thread safe, so every background parse creates its own instance and
+ * reuses it for all of the articles of a response.
+ */
+
+public class PublicationDateParser {
+
+    // Format of the "webPublicationDate" field, i.e. "2016-11-26T14:05:00Z"
+    private final SimpleDateFormat mIsoFormat =
+            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+
+    // Format shown in the list, i.e. "Aug 06, 1981"
+    private final SimpleDateFormat mDisplayFormat = new SimpleDateFormat("MMM dd, yyyy");
+
+    public PublicationDateParser() {
+        // The trailing 'Z' means the dates are in UTC
+        mIsoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    /**
+     * Parse a publication date String
+     * @param dateString is the "webPublicationDate" value of an article
+     * @return time in milliseconds since the epoch, or -1 if the String could not be parsed
+     */
+    public long parse(String dateString) {
+        if (dateString == null || dateString.isEmpty()) {
+            return -1;
+        }
+        try {
+            return mIsoFormat.parse(dateString).getTime();
+        } catch (ParseException pe) {
+            return -1;
+        }
+    }
+
+    /**
+     * Format a publication time for display
+     * @param timeInMillis is the time in milliseconds since the epoch
+     * @return date String (i.e. "Aug 06, 1981"), or an empty String if the time is unknown
+     */
+    public String format(long timeInMillis) {
+        if (timeInMillis == -1) {
+            return "";
+        }
+        return mDisplayFormat.format(new Date(timeInMillis));
+    }
+
+    /**
+     * Create an {@link Article} with its publication date parsed and formatted up front
+     * @param section is the section name which the article is listed
+     * @param title is the title of the article
+     * @param type is the type of news piece, like article
+     * @param date is the date String the article was published
+     * @param url is the url String of the the article from the Guardian API
+     * @return Article
+     */
+    public Article createArticle(String section, String title, String type, String date,
+                                 String url) {
+        return createArticle(section, title, type, date, url, null, null);
+    }
+
+    /**
+     * Create an {@link Article} with its publication date parsed and formatted up front
+     * @param section is the section name which the article is listed
+     * @param title is the title of the article
+     * @param type is the type of news piece, like article
+     * @param date is the date String the article was published
+     * @param url is the url String of the the article from the Guardian API
+     * @param thumbnailUrl is the url String of the thumbnail image, may be null
+     * @param trailText is the plain text summary of the article, may be null
+     * @return Article
+     */
+    public Article createArticle(String section, String title, String type, String date,
+                                 String url, String thumbnailUrl, String trailText) {
+        return createArticle(section, title, type, parse(date), url, thumbnailUrl, trailText);
+    }
+
+    /**
+     * Create an {@link Article} from an already parsed publication date, formatting it up front
+     * @param section is the section name which the article is listed
+     * @param title is the title of the article
+     * @param type is the type of news piece, like article
+     * @param timeInMillis is the publication date in milliseconds since the epoch, or -1
+     * @param url is the url String of the the article from the Guardian API
+     * @param thumbnailUrl is the url String of the thumbnail image, may be null
+     * @param trailText is the plain text summary of the article, may be null
+     * @return Article
+     */
+    public Article createArticle(String section, String title, String type, long timeInMillis,
+                                 String url, String thumbnailUrl, String trailText) {
+        return new Article(section, title, type, url, timeInMillis, format(timeInMillis),
+                thumbnailUrl, trailText);
+    }
+}
@@ -1,13 +1,12 @@
 package com.example.android.newsapp;
 
 import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -16,7 +15,12 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by ndoor on 11/29/2016.
@@ -33,6 +37,43 @@ public class QueryUtils {
     // Tag for the log messages
     public static final String LOG_TAG = QueryUtils.class.getSimpleName();
 
+    // My Guardian API Key
+    public static final String API_KEY = "820695a2-194d-4363-b7e2-b3e11eb8823b";
+
+    // Number of articles requested per page
+    public static final int PAGE_SIZE = 20;
+
+    // When true, the response is read into a pooled buffer and parsed from it token by token.
+    // When false, the response is decoded into a String and parsed into a JSONObject tree.
+    private static final boolean USE_STREAMING_PARSER = true;
+
+    // Retry and circuit breaker settings of the requests, the timeouts are replaced by the ones
+    // NetworkPolicy chooses for the network
+    private static volatile HttpConfig sHttpConfig = HttpConfig.DEFAULT;
+
+    // Guards the Guardian API, while it is open requests fail right away and callers keep
+    // showing the articles they have stored
+    private static volatile CircuitBreaker sCircuitBreaker = new CircuitBreaker(
+            HttpConfig.DEFAULT.getFailureThreshold(), HttpConfig.DEFAULT.getOpenDurationMillis());
+
+    // Source of the jitter added to the retry backoff
+    private static final Random sRandom = new Random();
+
+    // Publication time of the newest article seen for every page, by the cache key of the page
+    // query, refreshes of the page only ask for the articles published since
+    private static final Map<String, Long> sNewestPublicationTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Replace the retry and circuit breaker settings used by every following request, the
+     * timeouts are chosen by {@link NetworkPolicy}. The circuit starts out closed again.
+     * @param httpConfig is the new settings
+     */
+    public static void setHttpConfig(HttpConfig httpConfig) {
+        sHttpConfig = httpConfig;
+        sCircuitBreaker = new CircuitBreaker(httpConfig.getFailureThreshold(),
+                httpConfig.getOpenDurationMillis());
+    }
+
     /**
      * Query the Guardian API and return an ArrayList of {@link Article} objects meeting the
      * requested requirements of our query.
@@ -40,29 +81,143 @@ public class QueryUtils {
      * @return ArrayList<Article>
      */
     public static ArrayList<Article> fetchArticleData(String requestUrlString) {
+        return fetchArticleData(requestUrlString, null, null).getArticles();
+    }
+
+    /**
+     * Query the Guardian API, revalidating previously fetched results. If the server still has the
+     * same results for the given validators, it answers 304 Not Modified without a body and the
+     * returned {@link FetchResult} holds no articles, so the caller keeps using the ones it has.
+     *
+     * Requests that fail without a response, with 429 Too Many Requests or with a server error are
+     * retried with capped exponential backoff and jitter, waiting as long as a Retry-After header
+     * asks for. While the circuit breaker is open no request is made at all.
+     * @param requestUrlString is the query url to the Guardian API
+     * @param eTag is the ETag of the previously fetched results, or null
+     * @param lastModified is the Last-Modified of the previously fetched results, or null
+     * @return FetchResult
+     */
+    public static FetchResult fetchArticleData(String requestUrlString, String eTag,
+                                               String lastModified) {
+        return fetchArticleData(requestUrlString, eTag, lastModified, new CancellationToken());
+    }
+
+    /**
+     * Query the Guardian API like {@link #fetchArticleData(String, String, String)}, stopping as
+     * soon as the given token is cancelled. A cancelled request is not retried, does not count
+     * against the circuit breaker and returns no articles, even if some were read already.
+     * @param requestUrlString is the query url to the Guardian API
+     * @param eTag is the ETag of the previously fetched results, or null
+     * @param lastModified is the Last-Modified of the previously fetched results, or null
+     * @param cancellationToken cancels the request from another thread
+     * @return FetchResult
+     */
+    public static FetchResult fetchArticleData(String requestUrlString, String eTag,
+                                               String lastModified,
+                                               CancellationToken cancellationToken) {
         // Create URL object from the given String
         URL requestUrl = createUrl(requestUrlString);
+        if (requestUrl == null) {
+            return new FetchResult(null, false, null, null, 0);
+        }
 
-        // Perform HTTP request to the URL and receive a JSON response back. If there is a problem
-        // with connecting to the server, an IOException exception object will be thrown. Catch the
-        // exception so the app does not crash, and print the error message to the logs.
-        String jsonResponse = "";
-        try {
-            jsonResponse = makeHttpRequest(requestUrl);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Error closing input stream", e);
+        HttpConfig httpConfig = NetworkPolicy.applyTimeouts(sHttpConfig);
+        CircuitBreaker circuitBreaker = sCircuitBreaker;
+        FetchResult fetchResult = new FetchResult(null, false, null, null, 0);
+        long byteCount = 0;
+        long fetchStart = NewsMetrics.start();
+
+        for (int attempt = 0; attempt <= httpConfig.getMaxRetries(); attempt++) {
+            if (cancellationToken.isCancelled()) {
+                break;
+            }
+            if (!circuitBreaker.allowRequest()) {
+                Log.e(LOG_TAG, "Circuit open, not requesting " + requestUrlString);
+                NewsMetrics.increment(NewsMetrics.COUNTER_CIRCUIT_OPEN);
+                break;
+            }
+            NewsMetrics.increment(attempt == 0
+                    ? NewsMetrics.COUNTER_REQUESTS : NewsMetrics.COUNTER_RETRIES);
+
+            // Perform HTTP request to the URL and receive the parsed response back. If there is a
+            // problem with closing the connection, an IOException exception object will be
+            // thrown. Catch the exception so the app does not crash, and print the error message
+            // to the logs. A failed close leaves no result for this attempt.
+            fetchResult = new FetchResult(null, false, null, null, 0);
+            try {
+                fetchResult = makeHttpRequest(requestUrl, eTag, lastModified, httpConfig,
+                        cancellationToken);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error closing input stream", e);
+            }
+            byteCount += fetchResult.getByteCount();
+
+            if (cancellationToken.isCancelled()) {
+                // Whatever was read before the connection was cut off is incomplete. If this was
+                // the trial request of the circuit breaker, the next request takes its place.
+                fetchResult = new FetchResult(null, false, null, null, 0);
+                circuitBreaker.recordCancelled();
+                break;
+            }
+
+            if (!fetchResult.isRetryable()) {
+                // The server answered, even an error like 404 means it is up
+                circuitBreaker.recordSuccess();
+                break;
+            }
+            circuitBreaker.recordFailure();
+            NewsMetrics.increment(NewsMetrics.COUNTER_ERRORS);
+
+            if (attempt == httpConfig.getMaxRetries() || !sleepBeforeRetry(attempt,
+                    fetchResult.getRetryAfterMillis(), httpConfig)) {
+                break;
+            }
         }
 
-        if (jsonResponse != null) {
-            // Extract relevant fields from the JSON response and create an ArrayList of
-            // {@link Article} objects
-            ArrayList<Article> articles = (ArrayList) extractArticlesFromJson(jsonResponse);
+        NewsMetrics.stop(NewsMetrics.TIMER_FETCH, fetchStart);
+        NewsMetrics.record(NewsMetrics.HISTOGRAM_BYTES, byteCount);
+        if (fetchResult.getArticles() != null) {
+            NewsMetrics.record(NewsMetrics.HISTOGRAM_ARTICLES, fetchResult.getArticles().size());
+        }
 
-            // Return the {@link Event}
-            return articles;
+        // Report the bytes of every attempt, not only of the last one
+        return new FetchResult(fetchResult.getArticles(), fetchResult.isNotModified(),
+                fetchResult.getETag(), fetchResult.getLastModified(), byteCount,
+                fetchResult.getResponseCode(), fetchResult.getRetryAfterMillis());
+    }
+
+    /**
+     * Wait before the next attempt. The backoff doubles with every attempt up to the configured
+     * cap and a random part of it is used, so clients do not retry in lockstep. A server's
+     * Retry-After is honored as long as it is within the cap.
+     * @param attempt is the 0-based number of the attempt that just failed
+     * @param retryAfterMillis is the delay asked for by the server, or -1
+     * @param httpConfig is the retry settings
+     * @return false if the request should not be retried
+     */
+    private static boolean sleepBeforeRetry(int attempt, long retryAfterMillis,
+                                            HttpConfig httpConfig) {
+        long delay;
+        if (retryAfterMillis >= 0) {
+            if (retryAfterMillis > httpConfig.getMaxBackoffMillis()) {
+                // The server asked for a longer break than we are willing to wait
+                return false;
+            }
+            delay = retryAfterMillis;
+        } else {
+            delay = httpConfig.getBackoffMillis(attempt, sRandom.nextDouble());
         }
 
-        return null;
+        long backoffStart = NewsMetrics.start();
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            NewsMetrics.stop(NewsMetrics.TIMER_BACKOFF, backoffStart);
+        }
     }
 
     /**
@@ -83,53 +238,151 @@ public class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response. If there is a
-     * problem with retrieving the JSON information from the server, an IOException exception
+     * Make a conditional HTTP request to the given URL and return the parsed response. If there
+     * is a problem with retrieving the JSON information from the server, an IOException exception
      * object will be thrown. Catch the exception so the app does not crash, and print the error
      * message to the logs.
+     *
+     * The connection is not disconnected; the response body is read to the end and closed
+     * instead, which hands the socket back to the keep-alive pool for the next request.
      * @param url in the query URL we wish to use when granted an HTTP URL Connection.
-     * @return String of the JSON response from the query
+     * @param eTag is sent as If-None-Match when not null
+     * @param lastModified is sent as If-Modified-Since when not null
+     * @param httpConfig holds the timeouts of the request
+     * @param cancellationToken disconnects the connection when cancelled
+     * @return FetchResult of the query
      * @throws IOException
      */
-    // Try to parse the JSON response string. If there is a problem with the way the JSON
-    // is formatted, a JSONException exception object will be thrown. Catch the exception so
-    // the app does not crash, and print the error message to the logs.
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = null;
-        HttpURLConnection urlConnection = null;
+    private static FetchResult makeHttpRequest(URL url, String eTag, String lastModified,
+                                               HttpConfig httpConfig,
+                                               CancellationToken cancellationToken)
+            throws IOException {
+        ArrayList<Article> articles = null;
+        boolean notModified = false;
+        String responseETag = null;
+        String responseLastModified = null;
+        int responseCode = -1;
+        long retryAfterMillis = -1;
+        CountingInputStream countingStream = null;
         InputStream inputStream = null;
 
         // If the URL is null, then return early
         if (url == null) {
-            return jsonResponse;
+            return new FetchResult(null, false, null, null, 0);
         }
 
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // If the request was successful (response code 200), then read the input stream and
-            // parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // The connect timer covers the connection set up and waiting for the response headers.
+            // NetworkPolicy measures the same span, whether the metrics are enabled or not.
+            long connectStart = NewsMetrics.start();
+            long requestStart = System.nanoTime();
+            HttpURLConnection urlConnection =
+                    GuardianApi.openConnection(url, eTag, lastModified, httpConfig,
+                            cancellationToken);
+            responseCode = urlConnection.getResponseCode();
+            NewsMetrics.stop(NewsMetrics.TIMER_CONNECT, connectStart);
+            long responseStart = System.nanoTime();
+
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                // The request was successful, parse the response
+                responseETag = urlConnection.getHeaderField("ETag");
+                responseLastModified = urlConnection.getHeaderField("Last-Modified");
+                countingStream = new CountingInputStream(urlConnection.getInputStream());
+                inputStream = GuardianApi.decodedStream(urlConnection, countingStream);
+                int expectedLength = ResponseBuffer.expectedLength(
+                        urlConnection.getContentLength(), inputStream != countingStream);
+                articles = readArticles(inputStream, expectedLength);
+
+                // The read time includes the parsing, which makes the measured throughput a little
+                // pessimistic
+                if (!cancellationToken.isCancelled()) {
+                    NetworkPolicy.recordRequest((responseStart - requestStart) / 1000000,
+                            countingStream.getCount(),
+                            (System.nanoTime() - responseStart) / 1000000);
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                // The results we already have are still current, there is no body to parse
+                notModified = true;
+                NewsMetrics.increment(NewsMetrics.COUNTER_NOT_MODIFIED);
+                responseETag = eTag;
+                responseLastModified = lastModified;
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                Log.e(LOG_TAG, "Error response code: " + responseCode);
+                retryAfterMillis =
+                        HttpConfig.parseRetryAfter(urlConnection.getHeaderField("Retry-After"));
+                // Read the error body so the connection can still be reused
+                inputStream = urlConnection.getErrorStream();
             }
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem retrieving the article JSON results.", e);
-        } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                // The body was cut off partway, by a timeout or a reset connection. Whatever was
+                // parsed is incomplete, so it is treated like no response at all and retried.
+                articles = null;
+                responseETag = null;
+                responseLastModified = null;
+                responseCode = -1;
             }
+        } finally {
             if (inputStream != null) {
+                // A cancelled connection is gone, there is nothing left to drain
+                if (!cancellationToken.isCancelled()) {
+                    drain(inputStream);
+                }
                 inputStream.close();
             }
+            cancellationToken.detach();
+        }
+
+        long byteCount = countingStream != null ? countingStream.getCount() : 0;
+        return new FetchResult(articles, notModified, responseETag, responseLastModified,
+                byteCount, responseCode, retryAfterMillis);
+    }
+
+    // Read the response body into a pooled buffer and parse it with the streaming parser, or
+    // into a JSONObject tree, depending on USE_STREAMING_PARSER. The parsed articles are added to
+    // the local search index. The expected length sizes the buffer.
+    private static ArrayList<Article> readArticles(InputStream inputStream, int expectedLength)
+            throws IOException {
+        ArrayList<Article> articles;
+        if (USE_STREAMING_PARSER) {
+            // The parser reads the pooled bytes in place, no copy of the whole response is made
+            ResponseBuffer buffer = ResponseBuffer.obtain(expectedLength);
+            try {
+                long readStart = NewsMetrics.start();
+                buffer.readFrom(inputStream);
+                NewsMetrics.stop(NewsMetrics.TIMER_READ, readStart);
+                long parseStart = NewsMetrics.start();
+                articles = extractArticlesFromStream(buffer.newInputStream());
+                NewsMetrics.stop(NewsMetrics.TIMER_PARSE, parseStart);
+            } finally {
+                buffer.recycle();
+            }
+        } else {
+            long readStart = NewsMetrics.start();
+            String jsonResponse = readFromStream(inputStream, expectedLength);
+            NewsMetrics.stop(NewsMetrics.TIMER_READ, readStart);
+            long parseStart = NewsMetrics.start();
+            articles = extractArticlesFromJson(jsonResponse);
+            NewsMetrics.stop(NewsMetrics.TIMER_PARSE, parseStart);
+        }
+
+        if (articles != null) {
+            ArticleIndex.getInstance().addAll(articles);
+        }
+        return articles;
+    }
+
+    // Read what is left of a response body, a connection is only reused once its body is consumed
+    private static void drain(InputStream inputStream) {
+        byte[] buffer = new byte[1024];
+        try {
+            while (inputStream.read(buffer) != -1) {
+                // Discard the bytes
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem draining the response", e);
         }
-        return jsonResponse;
     }
 
     /**
@@ -138,26 +391,16 @@ public class QueryUtils {
      * object will be thrown. Catch the exception so the app does not crash, and print the error
      * message to the logs.
      * @param inputStream is the response from the server
+     * @param expectedLength is the expected length of the response, or -1 if not known
      * @return String of the JSON response
-     * @throws IOException
+     * @throws IOException if the response could not be read completely
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            try {
-                InputStreamReader inputStreamReader =
-                        new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-                BufferedReader reader = new BufferedReader(inputStreamReader);
-                String line = reader.readLine();
-                while (line != null) {
-                    output.append(line);
-                    line = reader.readLine();
-                }
-            } catch (IOException e) {
-                Log.e(LOG_TAG, "Problem with reading the InputStream", e);
-            }
+    private static String readFromStream(InputStream inputStream, int expectedLength)
+            throws IOException {
+        if (inputStream == null) {
+            return null;
         }
-        return output.toString();
+        return GuardianApi.readFully(inputStream, expectedLength);
     }
 
     /**
@@ -166,96 +409,266 @@ public class QueryUtils {
      * @param jsonResponse is the JSON response from the server as a String
      * @return ArrayList<Article>
      */
-    public static List<Article> extractArticlesFromJson(String jsonResponse) {
-        String sectionString = "";
-        String titleString = "";
-        String typeString = "";
-        String publicationDateString = "";
-        String urlString = "";
-
+    public static ArrayList<Article> extractArticlesFromJson(String jsonResponse) {
         // If the JSON string is empty or null, then return early.
         if (TextUtils.isEmpty(jsonResponse)) {
             return null;
         }
 
         // Create an empty ArrayList that we can start adding articles to
-        List<Article> articles = new ArrayList<>();
+        ArrayList<Article> articles = new ArrayList<>();
 
         // Try to parse the JSON response string. If there is a problem with the way the JSON
         // is formatted, a JSONException exception object will be thrown. Catch the exception so
         // the app does not crash, and print the error message to the logs.
         try {
-            // Create a JSONObject from the JSON response string
-            JSONObject baseJsonResponse = new JSONObject(jsonResponse);
-
-            try {
-                // Extract the JSONObject associated with the key called "response"
-                JSONObject responseJsonObject = baseJsonResponse.getJSONObject("response");
-
-                if (responseJsonObject != null) {
-                    // Extract the JSONArray associated with the key called "results"
-                    JSONArray resultsJsonArray = responseJsonObject.getJSONArray("results");
+            GuardianApi.parseArticles(jsonResponse, articles);
+        } catch (JSONException e) {
+            // Catch the error if JSONException error is thrown, print exception to logs
+            Log.e("QueryUtils", "Problem parsing the article JSON results", e);
+        }
 
-                    if (resultsJsonArray !=null) {
-                        // Create an {@link Article} object for each article in the resultsJsonArray
-                        for (int i = 0; i < resultsJsonArray.length(); i++) {
+        // Return the list of articles
+        return articles;
+    }
 
-                            // Get the current article from the resultsJsonArray
-                            JSONObject currentArticleJsonObject = resultsJsonArray.getJSONObject(i);
+    /**
+     * Return a List of {@link Article} objects parsed token by token from a JSON response stream.
+     * Only the five fields used by {@link Article} are read, everything else is skipped without
+     * being materialized. If a value has an unexpected type, the articles parsed so far are
+     * returned and the error message is printed to the logs.
+     * @param inputStream is the JSON response from the server
+     * @return ArrayList<Article>
+     * @throws IOException if reading the stream fails partway or the JSON is malformed, the
+     * articles parsed so far are then incomplete and dropped
+     */
+    public static ArrayList<Article> extractArticlesFromStream(InputStream inputStream)
+            throws IOException {
+        // Create an empty ArrayList that we can start adding articles to
+        ArrayList<Article> articles = new ArrayList<>();
 
-                            if (currentArticleJsonObject != null) {
-                                // Get the Section from the current article "sectionName" key
-                                sectionString = currentArticleJsonObject.getString("sectionName");
+        if (inputStream == null) {
+            return articles;
+        }
 
-                                // Get the Title from the current article "webTitle" key
-                                titleString = currentArticleJsonObject.getString("webTitle");
+        // Parse and format every publication date here, off the UI thread
+        PublicationDateParser dateParser = new PublicationDateParser();
 
-                                // Get the Type from the current article "type" key
-                                typeString = currentArticleJsonObject.getString("type");
+        JsonReader reader =
+                new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                // Only descend into the "response" object, skip everything else at the top level
+                if ("response".equals(reader.nextName())) {
+                    readResponse(reader, articles, dateParser);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            // An unexpected token, print exception to logs
+            Log.e(LOG_TAG, "Problem parsing the article JSON results", e);
+        }
 
-                                // Get the Date from the current article "webPublicationDate" key
-                                publicationDateString =
-                                        currentArticleJsonObject.getString("webPublicationDate");
+        // The reader is not closed, the stream belongs to the caller
 
-                                // Get the URL from the current article "webUrl" key
-                                urlString = currentArticleJsonObject.getString("webUrl");
-                            }
+        // Return the list of articles
+        return articles;
+    }
 
-                            // Create a new {@link Article} object with the section, title, author,
-                            // publication date, and url from the JSON response
-                            Article article = new Article(sectionString, titleString, typeString,
-                                    publicationDateString, urlString);
+    // Read the "response" object, adding an {@link Article} for each entry of its "results" array
+    private static void readResponse(JsonReader reader, List<Article> articles,
+                                     PublicationDateParser dateParser) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("results".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    articles.add(readArticle(reader, dateParser));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
 
-                            // Add the new {@link Article} to the list of articles
-                            articles.add(article);
-                        }
+    // Read a single entry of the "results" array into an {@link Article} object
+    private static Article readArticle(JsonReader reader, PublicationDateParser dateParser)
+            throws IOException {
+        String sectionString = "";
+        String titleString = "";
+        String typeString = "";
+        String publicationDateString = "";
+        String urlString = "";
+        String thumbnailString = null;
+        String trailTextString = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("fields") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                // The extra fields asked for with show-fields
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String fieldName = reader.nextName();
+                    if (reader.peek() != JsonToken.STRING) {
+                        reader.skipValue();
+                    } else if (fieldName.equals("thumbnail")) {
+                        thumbnailString = reader.nextString();
+                    } else if (fieldName.equals("trailText")) {
+                        trailTextString = GuardianApi.stripHtml(reader.nextString());
+                    } else {
+                        reader.skipValue();
                     }
                 }
-            } catch (JSONException e) {
-                // Catch the error if JSONException error is thrown, print exception to logs
-                Log.e("QueryUtils", "Problem parsing the article JSON results", e);
+                reader.endObject();
+            } else if (reader.peek() != JsonToken.STRING) {
+                // None of the other fields we need are objects, arrays or nulls
+                reader.skipValue();
+            } else if (name.equals("sectionName")) {
+                sectionString = reader.nextString();
+            } else if (name.equals("webTitle")) {
+                titleString = reader.nextString();
+            } else if (name.equals("type")) {
+                typeString = reader.nextString();
+            } else if (name.equals("webPublicationDate")) {
+                publicationDateString = reader.nextString();
+            } else if (name.equals("webUrl")) {
+                urlString = reader.nextString();
+            } else {
+                reader.skipValue();
             }
-        } catch (JSONException e) {
-            // Catch the error if JSONException error is thrown, print exception to logs
-            Log.e("QueryUtils", "Problem parsing the article JSON results", e);
         }
+        reader.endObject();
 
-        // Return the list of articles
-        return articles;
+        return dateParser.createArticle(sectionString, titleString, typeString,
+                publicationDateString, urlString, thumbnailString, trailTextString);
+    }
+
+    /**
+     * Create the query searching for the given words, with the API key and the extra fields of
+     * {@link GuardianApi#SHOW_FIELDS}. The results are ordered newest first, so the articles a
+     * delta query returns belong in front of the first page.
+     * @param searchWords is the words to search for, as typed by the user
+     * @return GuardianQuery without a page
+     */
+    public static GuardianQuery getSearchQuery(String searchWords) {
+        return new GuardianQuery.Builder()
+                .setApiKey(API_KEY)
+                .setQueryText(searchWords)
+                .setShowFields(GuardianApi.SHOW_FIELDS)
+                .setOrderBy(GuardianQuery.ORDER_BY_NEWEST)
+                .build();
     }
 
     /**
-     * Create the request URL String using the search word and API Key
-     * @param searchWordString is the String of search words
-     * @param mySearchKey is my Guardian API Key
-     * @return URL String
+     * Remember the publication time of the newest of the given articles for the given page, if it
+     * is newer than the one already known
+     * @param pageQuery is the query the articles were fetched with
+     * @param articles is the articles of the page, may be null
      */
-    public static String getSearchUrlString(String searchWordString, String mySearchKey) {
-        String searchURLString = "http://content.guardianapis.com/search?q=";
-        if (searchWordString != null && mySearchKey != null) {
-            searchURLString = searchURLString + searchWordString + mySearchKey;
+    public static void trackNewestPublicationTime(GuardianQuery pageQuery,
+                                                  List<Article> articles) {
+        if (articles == null) {
+            return;
+        }
+        long newest = getNewestPublicationTime(pageQuery);
+        for (Article article : articles) {
+            newest = Math.max(newest, article.getTimeInMillis());
+        }
+        if (newest != -1) {
+            sNewestPublicationTimes.put(pageQuery.getCacheKey(), newest);
         }
+    }
+
+    /**
+     * Return the publication time of the newest article seen for the given page
+     * @param pageQuery is the query the articles were fetched with
+     * @return time in milliseconds since the epoch, or -1 if it is not known
+     */
+    public static long getNewestPublicationTime(GuardianQuery pageQuery) {
+        Long newest = sNewestPublicationTimes.get(pageQuery.getCacheKey());
+        return newest != null ? newest : -1;
+    }
+
+    /**
+     * Create the query for the articles of a page published since the newest one seen, newest
+     * first. The Guardian API includes the articles published exactly at that time.
+     * @param pageQuery is the query of the page, created by getPageQuery
+     * @return GuardianQuery, or null if the newest publication time of the page is not known
+     */
+    public static GuardianQuery getDeltaQuery(GuardianQuery pageQuery) {
+        long newest = getNewestPublicationTime(pageQuery);
+        if (newest == -1) {
+            return null;
+        }
+        return pageQuery.buildUpon()
+                .setFromDate(newest)
+                .setOrderBy(GuardianQuery.ORDER_BY_NEWEST)
+                .build();
+    }
 
-        return searchURLString;
+    /**
+     * Merge the result of a delta request into the articles already shown. The articles not seen
+     * before go first, newest first as the server returned them, followed by the known articles.
+     * Every URL is only kept once.
+     * @param articles is the articles already stored for the page
+     * @param newArticles is the result of the delta request
+     * @param maxSize is the number of articles the merged page is cut off at
+     * @return ArrayList<Article> of the merged page, or null if there is no new article
+     */
+    public static ArrayList<Article> mergeNewArticles(List<Article> articles,
+                                                      List<Article> newArticles, int maxSize) {
+        Set<String> knownUrls = new HashSet<>();
+        for (Article article : articles) {
+            knownUrls.add(article.getUrl());
+        }
+
+        ArrayList<Article> merged = new ArrayList<>(Math.min(maxSize,
+                articles.size() + newArticles.size()));
+        for (Article article : newArticles) {
+            // The delta includes the newest known article itself, its publication time is the
+            // start of the range
+            if (knownUrls.add(article.getUrl()) && merged.size() < maxSize) {
+                merged.add(article);
+            }
+        }
+        if (merged.isEmpty()) {
+            return null;
+        }
+        // The known articles may hold the same URL twice when a page shifted while it was fetched
+        Set<String> mergedUrls = new HashSet<>();
+        for (Article article : merged) {
+            mergedUrls.add(article.getUrl());
+        }
+        for (Article article : articles) {
+            if (merged.size() == maxSize) {
+                break;
+            }
+            if (mergedUrls.add(article.getUrl())) {
+                merged.add(article);
+            }
+        }
+        return merged;
+    }
+
+    // Return the page size set by the given query, or PAGE_SIZE if it does not set one
+    public static int getPageSize(GuardianQuery query) {
+        return query.getPageSize() != -1 ? query.getPageSize() : PAGE_SIZE;
+    }
+
+    /**
+     * Create the query for a single page of the results of a search
+     * @param searchQuery is the search query created by getSearchQuery
+     * @param page is the 1-based number of the page
+     * @param pageSize is the number of articles on every page
+     * @return GuardianQuery
+     */
+    public static GuardianQuery getPageQuery(GuardianQuery searchQuery, int page, int pageSize) {
+        return searchQuery.buildUpon().setPage(page).setPageSize(pageSize).build();
     }
 }
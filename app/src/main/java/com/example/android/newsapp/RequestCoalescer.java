@@ -0,0 +1,184 @@
+package com.example.android.newsapp;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process wide de-duplication of Guardian API requests. Callers asking for the same query while a
+ * request for it is in flight wait for that request and share its parsed result, and results are
+ * kept in memory for a few seconds to absorb bursts, like a rotation right after a load. Queries
+ * are identified by their {@link GuardianQuery#getCacheKey() cache key}.
+ *
+ * Requests run on threads of the coalescer rather than of the callers, so a caller can stop
+ * waiting by being interrupted. Once the last caller waiting for a request stopped waiting, the
+ * request itself is cancelled and its connection cut off.
+ */
+
+public class RequestCoalescer {
+
+    // Successful results are reused for this long without a new request
+    private static final long BURST_TTL_MILLIS = 5 * 1000L;
+
+    // Maximum number of results kept for bursts
+    private static final int MAX_BURST_ENTRIES = 16;
+
+    private static final RequestCoalescer sInstance = new RequestCoalescer();
+
+    // Runs the requests, the callers only wait for them. Callers are already limited by the
+    // loaders, the sync and the FetchEngine permits, so the pool is not bounded here.
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    // Requests currently running, by request key, guarded by itself
+    private final Map<String, InFlightRequest> mInFlight = new HashMap<>();
+
+    // Recently finished successful requests, by request key
+    private final Map<String, BurstEntry> mRecent = new ConcurrentHashMap<>();
+
+    private RequestCoalescer() {
+    }
+
+    // Return the single {@link RequestCoalescer} of the process
+    public static RequestCoalescer getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Fetch the given query, sharing the request with any other caller asking for the same query
+     * with the same validators. Blocks until the result is available, so it must be called from a
+     * background thread.
+     * @param query is the query to the Guardian API
+     * @param eTag is the ETag of the previously fetched results, or null
+     * @param lastModified is the Last-Modified of the previously fetched results, or null
+     * @return FetchResult, shared with the other callers, its list must not be modified
+     * @throws InterruptedException if the calling thread was interrupted while waiting, the
+     * request is then cancelled unless other callers still wait for it
+     */
+    public FetchResult fetch(GuardianQuery query, String eTag, String lastModified)
+            throws InterruptedException {
+        String key = query.getCacheKey() + '\n' + eTag + '\n' + lastModified;
+
+        BurstEntry recent = mRecent.get(key);
+        if (recent != null && !recent.isExpired()) {
+            return recent.fetchResult;
+        }
+
+        InFlightRequest request;
+        synchronized (mInFlight) {
+            request = mInFlight.get(key);
+            if (request == null) {
+                // No request for the query is running, start one
+                request = new InFlightRequest(key, query.toUrlString(), eTag, lastModified);
+                mInFlight.put(key, request);
+                mExecutor.execute(request);
+            }
+            request.mWaiters++;
+        }
+
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            release(request);
+            throw e;
+        } catch (ExecutionException | CancellationException e) {
+            // fetchArticleData reports its own errors, treat anything else as a failed request
+            return new FetchResult(null, false, null, null, 0);
+        }
+    }
+
+    // Stop waiting for a request, cancelling it if nobody else waits for it
+    private void release(InFlightRequest request) {
+        synchronized (mInFlight) {
+            request.mWaiters--;
+            if (request.mWaiters > 0 || request.isDone()) {
+                return;
+            }
+            mInFlight.remove(request.mKey);
+        }
+        request.mCancellationToken.cancel();
+        request.cancel(true);
+    }
+
+    // Keep a successful result for bursts, dropping expired entries to stay within the limit
+    private void remember(String key, FetchResult fetchResult) {
+        Iterator<BurstEntry> iterator = mRecent.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired()) {
+                iterator.remove();
+            }
+        }
+        if (mRecent.size() >= MAX_BURST_ENTRIES) {
+            mRecent.clear();
+        }
+        mRecent.put(key, new BurstEntry(fetchResult));
+    }
+
+    // A request shared by the callers waiting for it
+    private class InFlightRequest extends FutureTask<FetchResult> {
+        final String mKey;
+        final CancellationToken mCancellationToken;
+
+        // Number of callers waiting for the request, guarded by mInFlight
+        int mWaiters;
+
+        InFlightRequest(String key, final String queryUrl, final String eTag,
+                        final String lastModified) {
+            this(key, queryUrl, eTag, lastModified, new CancellationToken());
+        }
+
+        private InFlightRequest(String key, final String queryUrl, final String eTag,
+                                final String lastModified,
+                                final CancellationToken cancellationToken) {
+            super(new Callable<FetchResult>() {
+                @Override
+                public FetchResult call() {
+                    return QueryUtils.fetchArticleData(queryUrl, eTag, lastModified,
+                            cancellationToken);
+                }
+            });
+            mKey = key;
+            mCancellationToken = cancellationToken;
+        }
+
+        @Override
+        protected void done() {
+            synchronized (mInFlight) {
+                if (mInFlight.get(mKey) == this) {
+                    mInFlight.remove(mKey);
+                }
+            }
+            if (isCancelled() || mCancellationToken.isCancelled()) {
+                return;
+            }
+            try {
+                FetchResult fetchResult = get();
+                if (fetchResult.getArticles() != null) {
+                    remember(mKey, fetchResult);
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                // Nothing to remember, the callers get the failure from get()
+            }
+        }
+    }
+
+    // A finished request and the time it finished
+    private static class BurstEntry {
+        final FetchResult fetchResult;
+        final long createdAt = System.currentTimeMillis();
+
+        BurstEntry(FetchResult fetchResult) {
+            this.fetchResult = fetchResult;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - createdAt > BURST_TTL_MILLIS;
+        }
+    }
+}
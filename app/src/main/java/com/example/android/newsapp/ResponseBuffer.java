@@ -0,0 +1,150 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * A response body read into a byte array, taken from a small process wide pool so the arrays
+ * are reused from request to request instead of becoming garbage. The array is sized up front
+ * from the Content-Length of the response when it is known, and grows while reading otherwise.
+ * The bytes are either decoded into a single String for the JSONObject parser, or read in place
+ * by the streaming parser.
+ *
+ * A buffer is used by one thread at a time and must be recycled once its bytes are no longer
+ * needed, after which it must not be used anymore.
+ */
+
+public final class ResponseBuffer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Size of a buffer when the length of the response is not known
+    private static final int MIN_CAPACITY = 16 * 1024;
+
+    // Larger buffers are not pooled, a rare huge response should not pin its memory for good
+    private static final int MAX_POOLED_CAPACITY = 256 * 1024;
+
+    // About one buffer for every request running at the same time, see FetchEngine
+    private static final int MAX_POOL_SIZE = 4;
+
+    // How much a gzip compressed JSON response is expected to grow when inflated. Guessing low
+    // only costs growing the buffer once, and only until the pooled buffers have grown.
+    private static final int GZIP_RATIO = 4;
+
+    private static final ArrayDeque<byte[]> sPool = new ArrayDeque<>(MAX_POOL_SIZE);
+
+    private byte[] mBytes;
+    private int mLength;
+
+    private ResponseBuffer(byte[] bytes) {
+        mBytes = bytes;
+    }
+
+    /**
+     * Return an empty buffer, a pooled one if one is large enough
+     * @param expectedLength is the expected length of the response body, or -1 if not known
+     * @return ResponseBuffer
+     */
+    public static ResponseBuffer obtain(int expectedLength) {
+        // One spare byte, so reading up to the end of a response of the expected length does not
+        // grow the buffer just to find there is nothing left
+        int capacity = Math.max(MIN_CAPACITY, expectedLength + 1);
+        synchronized (sPool) {
+            Iterator<byte[]> iterator = sPool.iterator();
+            while (iterator.hasNext()) {
+                byte[] bytes = iterator.next();
+                if (bytes.length >= capacity) {
+                    iterator.remove();
+                    return new ResponseBuffer(bytes);
+                }
+            }
+        }
+        return new ResponseBuffer(new byte[capacity]);
+    }
+
+    /**
+     * Return the expected length of a decoded response body
+     * @param contentLength is the Content-Length of the response, or -1 if it has none
+     * @param gzip is true if the response is gzip compressed
+     * @return the expected length, or -1 if not known
+     */
+    public static int expectedLength(long contentLength, boolean gzip) {
+        if (contentLength < 0) {
+            return -1;
+        }
+        long length = gzip ? contentLength * GZIP_RATIO : contentLength;
+        // Leave room for the spare byte of obtain
+        return (int) Math.min(length, MAX_POOLED_CAPACITY - 1);
+    }
+
+    // Drop the pooled buffers, called when the system is low on memory
+    public static void trimPool() {
+        synchronized (sPool) {
+            sPool.clear();
+        }
+    }
+
+    /**
+     * Read the rest of the given {@link InputStream} into the buffer, after what it holds already
+     * @param inputStream is the response body, it is not closed
+     * @throws IOException if there is a problem with reading the InputStream
+     */
+    public void readFrom(InputStream inputStream) throws IOException {
+        while (true) {
+            if (mLength == mBytes.length) {
+                byte[] bytes = new byte[mBytes.length * 2];
+                System.arraycopy(mBytes, 0, bytes, 0, mLength);
+                mBytes = bytes;
+            }
+            int read = inputStream.read(mBytes, mLength, mBytes.length - mLength);
+            if (read == -1) {
+                return;
+            }
+            mLength += read;
+        }
+    }
+
+    // Decode the bytes as UTF-8 text, straight from the array into a single String
+    public String decode() {
+        return new String(mBytes, 0, mLength, UTF_8);
+    }
+
+    /**
+     * Return an {@link InputStream} reading the bytes of the buffer in place, without copying
+     * them. It must not be used after the buffer is recycled.
+     * @return InputStream of the buffered bytes
+     */
+    public InputStream newInputStream() {
+        return new ByteArrayInputStream(mBytes, 0, mLength);
+    }
+
+    // Hand the array back to the pool, the buffer must not be used afterwards
+    public void recycle() {
+        byte[] bytes = mBytes;
+        mBytes = null;
+        mLength = 0;
+        if (bytes == null || bytes.length > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        synchronized (sPool) {
+            if (sPool.size() == MAX_POOL_SIZE) {
+                // A full pool keeps the largest buffers, they fit every response the smaller do
+                byte[] smallest = bytes;
+                for (byte[] pooled : sPool) {
+                    if (pooled.length < smallest.length) {
+                        smallest = pooled;
+                    }
+                }
+                if (smallest == bytes) {
+                    return;
+                }
+                sPool.remove(smallest);
+            }
+            sPool.push(bytes);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+/**
+ * Measures a cold start of the app, from the creation of the process to the first frame drawn,
+ * to the first articles shown, stored or fresh, and to the first fresh articles shown. Every time
+ * is recorded once per process in {@link NewsMetrics} and logged. A process started for the
+ * background sync is not a launch, so nothing is measured once a service was created first.
+ *
+ * All of the methods must be called on the main thread.
+ */
+
+public final class StartupTracker {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = StartupTracker.class.getSimpleName();
+
+    // System.nanoTime when the process was created, 0 while nothing is measured
+    private static long sProcessStartNanos;
+
+    private static boolean sActivityCreated;
+    private static boolean sFirstDrawRecorded;
+    private static boolean sContentRecorded;
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private StartupTracker() {
+    }
+
+    // Called first thing when the process is created
+    public static void onProcessStart() {
+        sProcessStartNanos = System.nanoTime();
+    }
+
+    // Stop measuring, the remaining times of this process are not a launch
+    public static void stop() {
+        sProcessStartNanos = 0;
+    }
+
+    // Called when an activity is created
+    public static void onActivityCreated() {
+        sActivityCreated = true;
+    }
+
+    // Called when a service is created, the process was started for it unless an activity was
+    // created before
+    public static void onServiceCreated() {
+        if (!sActivityCreated) {
+            stop();
+        }
+    }
+
+    // True while some of the times of the launch are still to be recorded
+    public static boolean isTracking() {
+        return sProcessStartNanos != 0;
+    }
+
+    // Called when the first frame of the first activity is about to be drawn
+    public static void onFirstDraw() {
+        if (isTracking() && !sFirstDrawRecorded) {
+            sFirstDrawRecorded = true;
+            record(NewsMetrics.TIMER_STARTUP_FIRST_DRAW);
+        }
+    }
+
+    /**
+     * Called whenever articles are shown
+     * @param fresh is true if the articles were just fetched or confirmed by the server, or are
+     *              stored recently enough to be shown without asking it
+     */
+    public static void onContentShown(boolean fresh) {
+        if (!isTracking()) {
+            return;
+        }
+        if (!sContentRecorded) {
+            sContentRecorded = true;
+            record(NewsMetrics.TIMER_STARTUP_FIRST_CONTENT);
+        }
+        if (fresh) {
+            record(NewsMetrics.TIMER_STARTUP_FRESH_CONTENT);
+            stop();
+        }
+    }
+
+    private static void record(String timer) {
+        long millis = (System.nanoTime() - sProcessStartNanos) / 1000000;
+        NewsMetrics.record(timer, millis);
+        Log.i(LOG_TAG, timer + " " + millis + " ms");
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.android.newsapp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Versioned binary snapshot of the article store, used to pre-seed devices with a feed so their
+ * first launch does not have to ask the server. Every entry holds the cache key of a query, the
+ * time it was fetched, its cache validators and its articles in the format of
+ * {@link ArticleCodec}, so loading a snapshot never parses JSON.
+ *
+ * Layout: magic, version, entry count, then for every entry the cache key, fetch time, ETag and
+ * Last-Modified (each behind a non-null flag) and the encoded articles.
+ */
+
+public final class StoreSnapshot {
+
+    // First four bytes of every snapshot, "NwsS"
+    private static final int MAGIC = 0x4e777353;
+
+    // Incremented whenever the layout changes, older snapshots are then rejected
+    private static final int VERSION = 1;
+
+    // Limit of the entry count read back, a larger one can only come from corrupt data
+    private static final int MAX_ENTRY_COUNT = 64 * 1024;
+
+    // Entries are added to the list as they are read, only this many are allocated up front
+    private static final int MAX_INITIAL_CAPACITY = 256;
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private StoreSnapshot() {
+    }
+
+    /**
+     * The stored articles of a single query
+     */
+    public static final class Entry {
+
+        private final String mCacheKey;
+        private final long mFetchedAt;
+        private final String mETag;
+        private final String mLastModified;
+        private final List<Article> mArticles;
+
+        /**
+         * Constructs a new {@link Entry}
+         * @param cacheKey is the cache key of the query, see {@link GuardianQuery#getCacheKey()}
+         * @param fetchedAt is the time the articles were fetched from the server
+         * @param eTag is the ETag header of the response, may be null
+         * @param lastModified is the Last-Modified header of the response, may be null
+         * @param articles is the list of articles in the order the server returned them
+         */
+        public Entry(String cacheKey, long fetchedAt, String eTag, String lastModified,
+                     List<Article> articles) {
+            mCacheKey = cacheKey;
+            mFetchedAt = fetchedAt;
+            mETag = eTag;
+            mLastModified = lastModified;
+            mArticles = Collections.unmodifiableList(articles);
+        }
+
+        public String getCacheKey() {
+            return mCacheKey;
+        }
+
+        public long getFetchedAt() {
+            return mFetchedAt;
+        }
+
+        public String getETag() {
+            return mETag;
+        }
+
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        public List<Article> getArticles() {
+            return mArticles;
+        }
+    }
+
+    /**
+     * Write a snapshot to a file. It is written next to the file first and then renamed, so a
+     * reader never sees a half written snapshot.
+     * @param entries is the list of entries
+     * @param file is the file to write, it is replaced if it exists
+     * @throws IOException if the file could not be written
+     */
+    public static void write(List<Entry> entries, File file) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            write(entries, out);
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not rename " + tempFile + " to " + file);
+        }
+    }
+
+    /**
+     * Write a snapshot
+     * @param entries is the list of entries
+     * @param out is where the snapshot is written
+     * @throws IOException if writing fails
+     */
+    public static void write(List<Entry> entries, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            out.writeUTF(entry.getCacheKey());
+            out.writeLong(entry.getFetchedAt());
+            writeNullableUTF(entry.getETag(), out);
+            writeNullableUTF(entry.getLastModified(), out);
+            ArticleCodec.write(entry.getArticles(), out);
+        }
+    }
+
+    /**
+     * Read a snapshot from a file. The file is memory mapped and decoded straight from the
+     * mapping, without copying it through a stream buffer first.
+     * @param file is the snapshot file
+     * @return ArrayList<Entry>
+     * @throws IOException if the file could not be read, is truncated or is not a snapshot of
+     * this version
+     */
+    public static ArrayList<Entry> read(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(new DataInputStream(new ByteBufferInputStream(mapped)));
+        } finally {
+            // The mapping stays valid after the file is closed
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Read a snapshot written by {@link #write}
+     * @param in is where the snapshot is read from
+     * @return ArrayList<Entry>
+     * @throws IOException if the data is truncated, corrupt or is not a snapshot of this version
+     */
+    public static ArrayList<Entry> read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an article snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+
+        int count = in.readInt();
+        if (count < 0 || count > MAX_ENTRY_COUNT) {
+            throw new IOException("Invalid entry count " + count);
+        }
+        ArrayList<Entry> entries = new ArrayList<>(Math.min(count, MAX_INITIAL_CAPACITY));
+        for (int i = 0; i < count; i++) {
+            String cacheKey = in.readUTF();
+            long fetchedAt = in.readLong();
+            String eTag = readNullableUTF(in);
+            String lastModified = readNullableUTF(in);
+            List<Article> articles = ArticleCodec.read(in);
+            entries.add(new Entry(cacheKey, fetchedAt, eTag, lastModified, articles));
+        }
+        return entries;
+    }
+
+    private static void writeNullableUTF(String value, DataOutput out) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * {@link InputStream} over the remaining bytes of a {@link ByteBuffer}
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, mBuffer.remaining());
+            mBuffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.android.newsapp;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide pool for the low cardinality Strings of the articles, like the section names, the
+ * types and the display dates. Every article of the same section shares a single String instead
+ * of holding its own copy of it.
+ */
+
+public final class StringPool {
+
+    // The pool is cleared once it holds this many Strings, which only happens if a field turns out
+    // not to be low cardinality after all
+    private static final int MAX_SIZE = 2048;
+
+    private static final ConcurrentHashMap<String, String> sPool = new ConcurrentHashMap<>();
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private StringPool() {
+    }
+
+    /**
+     * Return the pooled instance equal to the given String, adding it to the pool if needed
+     * @param value is the String to pool, may be null
+     * @return the pooled String, or null if the given String is null
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = sPool.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (sPool.size() >= MAX_SIZE) {
+            sPool.clear();
+        }
+        pooled = sPool.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.android.newsapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Schedules the {@link NewsSyncService} again after the alarms of the app were cleared, which
+ * happens when the device reboots and when the app is updated. Without it the background sync
+ * would stop until the app is opened again.
+ */
+
+public class SyncScheduleReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (Intent.ACTION_BOOT_COMPLETED.equals(action)
+                || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            NewsSyncService.schedule(context);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.android.newsapp;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the article thumbnails into ImageViews. Decoded bitmaps are kept in a memory LRU sized to
+ * the device, downloaded images in a {@link DiskCache}. Downloading and decoding happen on a small
+ * pool of background threads, and images are downsampled to the size of the view while decoding.
+ * Loading a new image into a view, or calling {@link #cancel}, cancels the view's previous load,
+ * so a recycled row never shows the image of the article it was bound to before.
+ *
+ * All of the public methods must be called on the main thread.
+ */
+
+public class ThumbnailLoader {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+
+    // Size of the downloaded images on disk
+    private static final long DISK_CACHE_SIZE = 20 * 1024 * 1024;
+
+    // The memory cache gets this fraction of the memory class of the app
+    private static final int MEMORY_CACHE_DIVISOR = 8;
+
+    // Number of images downloaded and decoded at the same time
+    private static final int THREAD_COUNT = 3;
+
+    private static ThumbnailLoader sInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final DiskCache mDiskCache;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // The load running for every view, only touched on the main thread. A finished load removes
+    // its own entry, a cancelled one is removed by cancel.
+    private final Map<ImageView, LoadTask> mPendingLoads = new HashMap<>();
+
+    private ThumbnailLoader(Context context) {
+        // Use an eighth of the memory class of the app, in bytes
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryCacheSize =
+                activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CACHE_DIVISOR;
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+        };
+
+        mDiskCache =
+                new DiskCache(new File(context.getCacheDir(), "thumbnails"), DISK_CACHE_SIZE);
+
+        // Low priority threads, so the decoding never competes with the UI thread
+        mExecutor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "ThumbnailLoader");
+            }
+        });
+    }
+
+    /**
+     * Return the single {@link ThumbnailLoader} of the app
+     * @param context of the app
+     * @return ThumbnailLoader
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Show the image at the given URL in the given view, downsampled to the given size. The view
+     * is cleared until the image is available.
+     * @param imageUrl is the URL String of the image
+     * @param imageView is the view showing the image
+     * @param width is the width of the view in pixels
+     * @param height is the height of the view in pixels
+     */
+    public void load(String imageUrl, ImageView imageView, int width, int height) {
+        cancel(imageView);
+
+        String key = imageUrl + '@' + width + 'x' + height;
+        Bitmap cached = mMemoryCache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+
+        imageView.setImageDrawable(null);
+        LoadTask task = new LoadTask(imageUrl, key, imageView, width, height);
+        task.mFuture = mExecutor.submit(task);
+        mPendingLoads.put(imageView, task);
+    }
+
+    /**
+     * Cancel the load running for the given view, if any
+     * @param imageView is the view the image was loaded for
+     */
+    public void cancel(ImageView imageView) {
+        LoadTask pending = mPendingLoads.remove(imageView);
+        if (pending != null) {
+            pending.mFuture.cancel(true);
+        }
+    }
+
+    /**
+     * Return the largest power of two to divide the image dimensions by, that still keeps the
+     * image at least as large as the view in both dimensions
+     * @param imageWidth is the width of the image
+     * @param imageHeight is the height of the image
+     * @param width is the width of the view
+     * @param height is the height of the view
+     * @return sample size for {@link BitmapFactory.Options#inSampleSize}
+     */
+    static int calculateInSampleSize(int imageWidth, int imageHeight, int width, int height) {
+        int sampleSize = 1;
+        while (imageWidth / (sampleSize * 2) >= width
+                && imageHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Downloads, caches and decodes a single image, then shows it if the view still wants it
+    private class LoadTask implements Runnable {
+        private final String mImageUrl;
+        private final String mKey;
+        private final ImageView mImageView;
+        private final int mWidth;
+        private final int mHeight;
+
+        // Set on the main thread right after the task was submitted
+        Future<?> mFuture;
+
+        LoadTask(String imageUrl, String key, ImageView imageView, int width, int height) {
+            mImageUrl = imageUrl;
+            mKey = key;
+            mImageView = imageView;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public void run() {
+            final Bitmap bitmap = loadBitmap();
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // Only touch the view if it was not cancelled or rebound meanwhile
+                    if (mPendingLoads.get(mImageView) == LoadTask.this) {
+                        mPendingLoads.remove(mImageView);
+                        if (bitmap != null) {
+                            mImageView.setImageBitmap(bitmap);
+                        }
+                    }
+                }
+            });
+        }
+
+        // Get the image from the disk cache or the network and decode it
+        private Bitmap loadBitmap() {
+            File file = mDiskCache.get(mImageUrl);
+            if (file == null) {
+                file = download();
+            }
+            if (file == null || Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+
+            Bitmap bitmap = decode(file);
+            if (bitmap != null) {
+                mMemoryCache.put(mKey, bitmap);
+            }
+            return bitmap;
+        }
+
+        // Download the image into the disk cache
+        private File download() {
+            InputStream inputStream = null;
+            try {
+                HttpURLConnection urlConnection =
+                        (HttpURLConnection) new URL(mImageUrl).openConnection();
+                urlConnection.setConnectTimeout(HttpConfig.DEFAULT.getConnectTimeoutMillis());
+                urlConnection.setReadTimeout(HttpConfig.DEFAULT.getReadTimeoutMillis());
+                if (urlConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                    return null;
+                }
+                inputStream = urlConnection.getInputStream();
+                return mDiskCache.put(mImageUrl, inputStream);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem downloading the thumbnail " + mImageUrl, e);
+                return null;
+            } finally {
+                if (inputStream != null) {
+                    try {
+                        inputStream.close();
+                    } catch (IOException e) {
+                        Log.e(LOG_TAG, "Error closing input stream", e);
+                    }
+                }
+            }
+        }
+
+        // Decode the image file, downsampled to the size of the view
+        private Bitmap decode(File file) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(file.getPath(), options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+
+            options.inJustDecodeBounds = false;
+            options.inSampleSize =
+                    calculateInSampleSize(options.outWidth, options.outHeight, mWidth, mHeight);
+            // Thumbnails are opaque photos, half the memory of ARGB_8888 is enough
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+}
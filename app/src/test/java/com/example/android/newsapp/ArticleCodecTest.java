@@ -0,0 +1,110 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the binary form of the articles written by {@link ArticleCodec}
+ */
+public class ArticleCodecTest {
+
+    private static Article article(String section, String title, String url, String trailText) {
+        return new Article(section, title, "article", url, 1480413600000L, "", null, trailText);
+    }
+
+    @Test
+    public void decode_returnsEncodedArticles() throws Exception {
+        List<Article> articles = Arrays.asList(
+                article("Travel", "Winter breaks in Kraków", "u1", "Snow & markets"),
+                article(null, null, "u2", null),
+                article("Travel", "Tromsø", "u3", ""));
+
+        List<Article> decoded = ArticleCodec.decode(ArticleCodec.encode(articles));
+
+        assertEquals(3, decoded.size());
+        for (int i = 0; i < articles.size(); i++) {
+            assertEquals(articles.get(i).getSection(), decoded.get(i).getSection());
+            assertEquals(articles.get(i).getTitle(), decoded.get(i).getTitle());
+            assertEquals(articles.get(i).getUrl(), decoded.get(i).getUrl());
+            assertEquals(articles.get(i).getTimeInMillis(), decoded.get(i).getTimeInMillis());
+            assertEquals(articles.get(i).getTrailText(), decoded.get(i).getTrailText());
+        }
+    }
+
+    @Test
+    public void encode_handlesStringsLongerThan64Kb() throws Exception {
+        // Three bytes per character in UTF-8, far over the limit of writeUTF
+        StringBuilder trailText = new StringBuilder();
+        for (int i = 0; i < 40000; i++) {
+            trailText.append('€');
+        }
+
+        List<Article> decoded = ArticleCodec.decode(ArticleCodec.encode(
+                Arrays.asList(article("News", "Long", "u1", trailText.toString()))));
+
+        assertEquals(trailText.toString(), decoded.get(0).getTrailText());
+    }
+
+    @Test
+    public void decode_returnsEmptyList() throws Exception {
+        assertTrue(ArticleCodec.decode(ArticleCodec.encode(new ArrayList<Article>())).isEmpty());
+    }
+
+    @Test
+    public void decode_throwsOnTruncatedData() throws Exception {
+        byte[] encoded = ArticleCodec.encode(Arrays.asList(
+                article("Travel", "Winter breaks", "u1", "Snow"),
+                article("Travel", "Summer breaks", "u2", "Sun")));
+
+        for (int length = 0; length < encoded.length; length++) {
+            try {
+                ArticleCodec.decode(Arrays.copyOf(encoded, length));
+                fail("Decoded the first " + length + " bytes");
+            } catch (IOException expected) {
+                // Truncated
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_throwsOnHugeArticleCount() throws Exception {
+        byte[] encoded = ArticleCodec.encode(new ArrayList<Article>());
+        // Version, empty dictionary, then the article count
+        ByteBuffer.wrap(encoded).putInt(8, Integer.MAX_VALUE);
+
+        ArticleCodec.decode(encoded);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_throwsOnNegativeDictionarySize() throws Exception {
+        byte[] encoded = ArticleCodec.encode(new ArrayList<Article>());
+        ByteBuffer.wrap(encoded).putInt(4, -5);
+
+        ArticleCodec.decode(encoded);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_throwsOnStringLongerThanData() throws Exception {
+        // A title claiming far more bytes than follow it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] header = ArticleCodec.encode(new ArrayList<Article>());
+        out.write(header, 0, 8);
+        out.writeInt(1);
+        out.writeInt(-1);
+        out.writeInt(-1);
+        out.writeInt(Integer.MAX_VALUE);
+        out.write(new byte[100]);
+
+        ArticleCodec.decode(bytes.toByteArray());
+    }
+}
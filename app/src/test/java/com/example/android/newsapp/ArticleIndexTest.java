@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the tokenizer and of the searches of {@link ArticleIndex}, on a fresh index
+ */
+public class ArticleIndexTest {
+
+    private static Article article(String section, String title, String url, long timeInMillis) {
+        return new Article(section, title, "article", url, timeInMillis, "", null, null);
+    }
+
+    @Test
+    public void tokenize_splitsLowerCaseWordsAndDropsShortOnes() {
+        assertEquals(Arrays.asList("brexit", "talks", "deal", "in", "2016", "kraków"),
+                ArticleIndex.tokenize("Brexit talks: a deal in 2016? KRAKÓW!"));
+        assertTrue(ArticleIndex.tokenize(null).isEmpty());
+        assertTrue(ArticleIndex.tokenize(" - ! a ").isEmpty());
+    }
+
+    @Test
+    public void search_matchesLastTokenAsPrefix() {
+        ArticleIndex index = new ArticleIndex();
+        index.addAll(Arrays.asList(
+                article("Travel", "Winter breaks in Europe", "u1", 1),
+                article("Money", "Winter fuel payments", "u2", 2)));
+
+        assertEquals(2, index.search("win").size());
+        assertEquals(1, index.search("Winter bre").size());
+        assertEquals("u1", index.search("Winter bre").get(0).getUrl());
+        // Only the last token is a prefix
+        assertTrue(index.search("win breaks").isEmpty());
+    }
+
+    @Test
+    public void search_requiresEveryTokenAndMatchesSections() {
+        ArticleIndex index = new ArticleIndex();
+        index.addAll(Arrays.asList(
+                article("Travel", "Winter breaks in Europe", "u1", 1),
+                article("Money", "Winter fuel payments", "u2", 2)));
+
+        List<Article> results = index.search("winter money");
+        assertEquals(1, results.size());
+        assertEquals("u2", results.get(0).getUrl());
+        assertTrue(index.search("europe fuel").isEmpty());
+        assertTrue(index.search("").isEmpty());
+    }
+
+    @Test
+    public void search_returnsNewestFirstAndUnknownDatesLast() {
+        ArticleIndex index = new ArticleIndex();
+        index.addAll(Arrays.asList(
+                article("News", "Storm warning", "old", 1000),
+                article("News", "Storm clean up", "undated", -1),
+                article("News", "Storm arrives", "new", 2000)));
+
+        List<Article> results = index.search("storm");
+        assertEquals(3, results.size());
+        assertEquals("new", results.get(0).getUrl());
+        assertEquals("old", results.get(1).getUrl());
+        assertEquals("undated", results.get(2).getUrl());
+    }
+
+    @Test
+    public void addAll_replacesArticleWithChangedTitle() {
+        ArticleIndex index = new ArticleIndex();
+        index.addAll(Arrays.asList(article("News", "Election results", "u1", 1)));
+        index.addAll(Arrays.asList(article("News", "Recount ordered", "u1", 1)));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("election").isEmpty());
+        assertEquals("Recount ordered", index.search("recount").get(0).getTitle());
+    }
+
+    @Test
+    public void addAll_compactsWithoutLosingLiveArticles() {
+        ArticleIndex index = new ArticleIndex();
+        // Every title changes many times, so the replaced documents outnumber the live ones
+        for (int version = 0; version < 100; version++) {
+            for (int i = 0; i < 5; i++) {
+                index.addAll(Arrays.asList(
+                        article("News", "Story" + i + " version" + version, "u" + i, i)));
+            }
+        }
+
+        assertEquals(5, index.size());
+        assertEquals(5, index.search("version99").size());
+        assertTrue(index.search("version98").isEmpty());
+    }
+}
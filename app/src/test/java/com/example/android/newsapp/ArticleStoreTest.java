@@ -0,0 +1,79 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the import of {@link StoreSnapshot} files into an {@link ArticleStore}, on the
+ * SQLite database of Robolectric
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 24, manifest = Config.NONE)
+public class ArticleStoreTest {
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static StoreSnapshot.Entry entry(String cacheKey, long fetchedAt) {
+        Article article = new Article("Travel", "Winter breaks", "article", cacheKey + "/article",
+                fetchedAt, "", null, "Snow");
+        return new StoreSnapshot.Entry(cacheKey, fetchedAt, "\"etag\"", null,
+                Collections.singletonList(article));
+    }
+
+    private static int importEntries(ArticleStore store, List<StoreSnapshot.Entry> entries)
+            throws Exception {
+        File file = File.createTempFile("snapshot", ".seed");
+        try {
+            StoreSnapshot.write(entries, file);
+            return store.importFrom(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void importFrom_keepsSnapshotOlderThanMaxAge() throws Exception {
+        ArticleStore store = new ArticleStore(RuntimeEnvironment.application);
+        long fetchedAt = System.currentTimeMillis() - ArticleStore.MAX_AGE_MILLIS - 30 * DAY_MILLIS;
+
+        assertEquals(1, importEntries(store, Collections.singletonList(entry("old", fetchedAt))));
+        // Storing other articles expires the queries older than the maximum age
+        store.putArticles("other", Collections.<Article>emptyList());
+
+        List<Article> articles = store.getArticles("old");
+        assertNotNull(articles);
+        assertEquals("Winter breaks", articles.get(0).getTitle());
+        assertEquals("\"etag\"", store.getETag("old"));
+        // Shown right away, but refreshed from the server
+        assertFalse(store.isFresh("old"));
+    }
+
+    @Test
+    public void importFrom_keepsFetchTimeOfRecentSnapshot() throws Exception {
+        ArticleStore store = new ArticleStore(RuntimeEnvironment.application);
+        long fetchedAt = System.currentTimeMillis() - 60 * 1000;
+
+        assertEquals(1, importEntries(store, Collections.singletonList(entry("new", fetchedAt))));
+
+        assertEquals(fetchedAt, store.getFetchedAt("new"));
+        assertTrue(store.isFresh("new"));
+    }
+
+    @Test
+    public void importFrom_skipsQueriesStoredSinceSnapshot() throws Exception {
+        ArticleStore store = new ArticleStore(RuntimeEnvironment.application);
+        long fetchedAt = System.currentTimeMillis() - 30 * DAY_MILLIS;
+
+        assertEquals(1, importEntries(store, Collections.singletonList(entry("seed", fetchedAt))));
+        assertEquals(0, importEntries(store, Collections.singletonList(entry("seed", fetchedAt))));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the state transitions of {@link CircuitBreaker}
+ */
+public class CircuitBreakerTest {
+
+    private static final long OPEN_DURATION_MILLIS = 50;
+
+    @Test
+    public void startsClosed() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, OPEN_DURATION_MILLIS);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void opensAtFailureThreshold() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, OPEN_DURATION_MILLIS);
+
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, OPEN_DURATION_MILLIS);
+
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void letsOneTrialThroughAfterOpenDuration() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, OPEN_DURATION_MILLIS);
+        circuitBreaker.recordFailure();
+        assertFalse(circuitBreaker.allowRequest());
+
+        Thread.sleep(OPEN_DURATION_MILLIS + 20);
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        // Only the trial goes through until it is recorded
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void successfulTrialCloses() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, OPEN_DURATION_MILLIS);
+        circuitBreaker.recordFailure();
+        Thread.sleep(OPEN_DURATION_MILLIS + 20);
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialOpensAgain() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(5, OPEN_DURATION_MILLIS);
+        for (int i = 0; i < 5; i++) {
+            circuitBreaker.recordFailure();
+        }
+        Thread.sleep(OPEN_DURATION_MILLIS + 20);
+        assertTrue(circuitBreaker.allowRequest());
+
+        // A single failed trial is enough, whatever the threshold
+        circuitBreaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void cancelledTrialLetsNextRequestThrough() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, OPEN_DURATION_MILLIS);
+        circuitBreaker.recordFailure();
+        Thread.sleep(OPEN_DURATION_MILLIS + 20);
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+
+        // The trial was cancelled, the next request is the new trial right away
+        circuitBreaker.recordCancelled();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void cancelledRequestLeavesClosedCircuitAlone() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, OPEN_DURATION_MILLIS);
+        circuitBreaker.recordFailure();
+
+        circuitBreaker.recordCancelled();
+        circuitBreaker.recordFailure();
+
+        // The cancelled request neither counted as a failure nor reset the count
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
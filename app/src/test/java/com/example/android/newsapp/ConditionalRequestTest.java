@@ -0,0 +1,135 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the conditional, gzip compressed requests of {@link GuardianApi#openConnection}
+ * against a local server that validates an ETag: the bytes transferred by a full response and by
+ * a 304 Not Modified, and the number of round trips
+ */
+public class ConditionalRequestTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Tue, 29 Nov 2016 10:00:00 GMT";
+
+    private byte[] mBody;
+    private byte[] mGzipBody;
+    private StubServer mServer;
+
+    // The request headers last seen by the server
+    private volatile String mAcceptEncoding;
+    private volatile String mIfNoneMatch;
+    private volatile String mIfModifiedSince;
+
+    @Before
+    public void setUp() throws Exception {
+        mBody = StubServer.readFixture("guardian_search.json");
+        mGzipBody = StubServer.gzip(mBody);
+        mServer = new StubServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                mIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                mIfModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                if (ETAG.equals(mIfNoneMatch)) {
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_NOT_MODIFIED, null);
+                } else if ("gzip".equals(mAcceptEncoding)) {
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_OK, mGzipBody);
+                } else {
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_OK, mBody);
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void firstRequest_downloadsCompressedBody() throws Exception {
+        HttpURLConnection connection = GuardianApi.openConnection(mServer.getUrl("/search"),
+                null, null, HttpConfig.DEFAULT, new CancellationToken());
+
+        assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+        assertEquals("gzip", mAcceptEncoding);
+        assertNull(mIfNoneMatch);
+        assertEquals(ETAG, connection.getHeaderField("ETag"));
+
+        CountingInputStream countingStream = new CountingInputStream(connection.getInputStream());
+        InputStream inputStream = GuardianApi.decodedStream(connection, countingStream);
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(GuardianApi.readFully(inputStream, -1), articles);
+        inputStream.close();
+
+        assertEquals(3, articles.size());
+        assertEquals(mGzipBody.length, countingStream.getCount());
+        assertTrue(countingStream.getCount() < mBody.length);
+    }
+
+    @Test
+    public void revalidation_answersNotModifiedWithoutBody() throws Exception {
+        HttpURLConnection connection = GuardianApi.openConnection(mServer.getUrl("/search"),
+                null, null, HttpConfig.DEFAULT, new CancellationToken());
+        assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+        String eTag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        GuardianApi.readFully(connection.getInputStream(), -1);
+        connection.getInputStream().close();
+
+        connection = GuardianApi.openConnection(mServer.getUrl("/search"), eTag, lastModified,
+                HttpConfig.DEFAULT, new CancellationToken());
+
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, connection.getResponseCode());
+        assertEquals(ETAG, mIfNoneMatch);
+        assertEquals(LAST_MODIFIED, mIfModifiedSince);
+        CountingInputStream countingStream = new CountingInputStream(connection.getInputStream());
+        GuardianApi.readFully(countingStream, -1);
+        countingStream.close();
+        assertEquals(0, countingStream.getCount());
+
+        // One round trip each, nothing answered from a local cache
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void staleValidator_downloadsBodyAgain() throws Exception {
+        HttpURLConnection connection = GuardianApi.openConnection(mServer.getUrl("/search"),
+                "\"v0\"", null, HttpConfig.DEFAULT, new CancellationToken());
+
+        assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+        CountingInputStream countingStream = new CountingInputStream(connection.getInputStream());
+        GuardianApi.readFully(countingStream, -1);
+        countingStream.close();
+        assertEquals(mGzipBody.length, countingStream.getCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void cancelledToken_makesNoRequest() throws Exception {
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+        try {
+            GuardianApi.openConnection(mServer.getUrl("/search"), null, null,
+                    HttpConfig.DEFAULT, cancellationToken);
+        } finally {
+            assertEquals(0, mServer.getRequestCount());
+        }
+    }
+}
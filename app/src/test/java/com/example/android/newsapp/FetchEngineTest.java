@@ -0,0 +1,315 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link FetchEngine}: the wall time of fetching several queries from a slow local
+ * server concurrently instead of one after the other, the per host limit, and with
+ * {@link FixtureSource} objects the merge, the scheduling of the hosts, the cancellation and the
+ * sources fetched after shutdown
+ */
+public class FetchEngineTest {
+
+    private static final int SOURCE_COUNT = 6;
+    private static final long LATENCY_MILLIS = 150;
+
+    private StubServer mServer;
+
+    // Requests the server is answering right now, and the most it answered at the same time
+    private final AtomicInteger mInFlight = new AtomicInteger();
+    private final AtomicInteger mMaxInFlight = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        final byte[] body = StubServer.readFixture("guardian_search.json");
+        mServer = new StubServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int inFlight = mInFlight.incrementAndGet();
+                synchronized (mMaxInFlight) {
+                    mMaxInFlight.set(Math.max(mMaxInFlight.get(), inFlight));
+                }
+                try {
+                    Thread.sleep(LATENCY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // Counted out before responding, the client sends its next request as soon as
+                // it has the response
+                mInFlight.decrementAndGet();
+                StubServer.respond(exchange, HttpURLConnection.HTTP_OK, body);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    private List<HttpSource> createSources() throws IOException {
+        List<HttpSource> sources = new ArrayList<>();
+        for (int i = 1; i <= SOURCE_COUNT; i++) {
+            sources.add(new HttpSource(mServer.getUrl("/search?page=" + i)));
+        }
+        return sources;
+    }
+
+    @Test
+    public void fetchAll_isFasterThanSequentialFetches() throws Exception {
+        List<HttpSource> sources = createSources();
+
+        long sequentialStart = System.nanoTime();
+        for (HttpSource source : sources) {
+            assertNotNull(source.fetch().getArticles());
+        }
+        long sequentialMillis = (System.nanoTime() - sequentialStart) / 1000000;
+
+        FetchEngine engine = new FetchEngine(SOURCE_COUNT, SOURCE_COUNT);
+        final AtomicInteger finished = new AtomicInteger();
+        long concurrentStart = System.nanoTime();
+        List<Article> merged = engine.fetchAll(sources, new FetchEngine.Listener<HttpSource>() {
+            @Override
+            public void onSourceFinished(HttpSource source, FetchResult fetchResult,
+                                         List<Article> mergedArticles, int remaining) {
+                finished.incrementAndGet();
+                assertEquals(3, mergedArticles.size());
+            }
+        });
+        long concurrentMillis = (System.nanoTime() - concurrentStart) / 1000000;
+        engine.shutdown();
+
+        String timings = SOURCE_COUNT + " sources took " + concurrentMillis
+                + " ms, one after the other " + sequentialMillis + " ms";
+        assertTrue(timings, sequentialMillis >= SOURCE_COUNT * LATENCY_MILLIS);
+        assertTrue(timings, concurrentMillis < sequentialMillis / 2);
+        assertEquals(SOURCE_COUNT, finished.get());
+        // Every page returns the same articles, they are merged into one copy each
+        assertEquals(3, merged.size());
+    }
+
+    @Test
+    public void fetchAll_limitsRequestsPerHost() throws Exception {
+        FetchEngine engine = new FetchEngine(SOURCE_COUNT, 2);
+        long start = System.nanoTime();
+        engine.fetchAll(createSources(), null);
+        long millis = (System.nanoTime() - start) / 1000000;
+        engine.shutdown();
+
+        assertEquals(2, mMaxInFlight.get());
+        assertTrue(millis >= SOURCE_COUNT / 2 * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void fetchAll_mergesAndDedupesFixtureSources() throws Exception {
+        String response = new String(StubServer.readFixture("guardian_search.json"), "UTF-8");
+        Article newest = new Article("World", "Markets rally after the vote", "article",
+                "https://www.theguardian.com/world/2016/nov/30/markets", 1480500000000L, "",
+                null, null);
+        List<FixtureSource> sources = Arrays.asList(
+                FixtureSource.fromJson("first", response),
+                FixtureSource.fromJson("copy", response),
+                new FixtureSource("newest", Collections.singletonList(newest), 50));
+
+        FetchEngine engine = new FetchEngine(2, 2);
+        final List<Integer> remainingCounts = new ArrayList<>();
+        List<Article> merged = engine.fetchAll(sources, new FetchEngine.Listener<FixtureSource>() {
+            @Override
+            public void onSourceFinished(FixtureSource source, FetchResult fetchResult,
+                                         List<Article> mergedArticles, int remaining) {
+                remainingCounts.add(remaining);
+            }
+        });
+        engine.shutdown();
+
+        assertEquals(Arrays.asList(2, 1, 0), remainingCounts);
+        // The copy adds nothing, the newest article goes first
+        assertEquals(4, merged.size());
+        assertSame(newest, merged.get(0));
+    }
+
+    @Test
+    public void fetchAll_doesNotLimitSourcesWithoutHost() throws Exception {
+        List<FixtureSource> sources = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sources.add(new FixtureSource("fixture" + i, new ArrayList<Article>(), 200));
+        }
+
+        FetchEngine engine = new FetchEngine(4, 1);
+        long start = System.nanoTime();
+        engine.fetchAll(sources, null);
+        long millis = (System.nanoTime() - start) / 1000000;
+        engine.shutdown();
+
+        assertTrue(millis < 2 * 200);
+    }
+
+    @Test
+    public void fetchAll_doesNotHoldThreadsForBusyHost() throws Exception {
+        // Two threads and one request per host: the sources of the busy host must not keep the
+        // other sources waiting for a thread
+        List<ArticleSource> sources = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sources.add(new HostSource("busy" + i, "busy.example.com", 200));
+        }
+        sources.add(new HostSource("other", "other.example.com", 0));
+        sources.add(new FixtureSource("fixture", new ArrayList<Article>(), 0));
+
+        FetchEngine engine = new FetchEngine(2, 1);
+        final List<String> finishOrder = new ArrayList<>();
+        engine.fetchAll(sources, new FetchEngine.Listener<ArticleSource>() {
+            @Override
+            public void onSourceFinished(ArticleSource source, FetchResult fetchResult,
+                                         List<Article> mergedArticles, int remaining) {
+                finishOrder.add(source.getKey());
+            }
+        });
+        engine.shutdown();
+
+        assertEquals(5, finishOrder.size());
+        assertEquals("busy0", finishOrder.get(2));
+    }
+
+    @Test
+    public void fetchAll_cancelsSourcesWhenInterrupted() throws Exception {
+        List<HostSource> sources = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sources.add(new HostSource("slow" + i, "slow.example.com", 10000));
+        }
+        final Thread caller = Thread.currentThread();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                caller.interrupt();
+            }
+        }).start();
+
+        FetchEngine engine = new FetchEngine(2, 2);
+        long start = System.nanoTime();
+        try {
+            engine.fetchAll(sources, null);
+            fail("fetchAll was not interrupted");
+        } catch (InterruptedException expected) {
+            // Interrupted
+        }
+        assertTrue((System.nanoTime() - start) / 1000000 < 2000);
+
+        // The cancelled sources gave back their threads and the permits of their host
+        start = System.nanoTime();
+        engine.fetchAll(Arrays.asList(new HostSource("fast0", "slow.example.com", 0),
+                new HostSource("fast1", "slow.example.com", 0)), null);
+        engine.shutdown();
+        assertTrue((System.nanoTime() - start) / 1000000 < 2000);
+    }
+
+    @Test(timeout = 5000)
+    public void fetchAll_failsSourcesAfterShutdown() throws Exception {
+        FetchEngine engine = new FetchEngine(2, 1);
+        engine.shutdown();
+
+        List<HostSource> sources = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sources.add(new HostSource("late" + i, "late.example.com", 0));
+        }
+        final AtomicInteger finished = new AtomicInteger();
+        List<Article> merged = engine.fetchAll(sources, new FetchEngine.Listener<HostSource>() {
+            @Override
+            public void onSourceFinished(HostSource source, FetchResult fetchResult,
+                                         List<Article> mergedArticles, int remaining) {
+                finished.incrementAndGet();
+            }
+        });
+
+        // The rejected sources are left out and gave back the permit of their host, or the
+        // second one would have waited for it forever
+        assertTrue(merged.isEmpty());
+        assertEquals(0, finished.get());
+    }
+
+    // A source without articles on the given host, sleeping instead of using the network
+    private static class HostSource implements ArticleSource {
+        private final String mKey;
+        private final String mHost;
+        private final long mDelayMillis;
+
+        HostSource(String key, String host, long delayMillis) {
+            mKey = key;
+            mHost = host;
+            mDelayMillis = delayMillis;
+        }
+
+        @Override
+        public String getKey() {
+            return mKey;
+        }
+
+        @Override
+        public String getHost() {
+            return mHost;
+        }
+
+        @Override
+        public FetchResult fetch() throws InterruptedException {
+            Thread.sleep(mDelayMillis);
+            return new FetchResult(new ArrayList<Article>(), false, null, null, 0);
+        }
+    }
+
+    // Fetches and parses a search response the way QueryUtils does with its buffered parser
+    private static class HttpSource implements ArticleSource {
+        private final URL mUrl;
+
+        HttpSource(URL url) {
+            mUrl = url;
+        }
+
+        @Override
+        public String getKey() {
+            return mUrl.toString();
+        }
+
+        @Override
+        public String getHost() {
+            return mUrl.getHost();
+        }
+
+        @Override
+        public FetchResult fetch() {
+            ArrayList<Article> articles = null;
+            try {
+                HttpURLConnection connection = GuardianApi.openConnection(mUrl, null, null,
+                        HttpConfig.DEFAULT, new CancellationToken());
+                InputStream inputStream = connection.getInputStream();
+                String jsonResponse = GuardianApi.readFully(inputStream, -1);
+                inputStream.close();
+                articles = new ArrayList<>();
+                GuardianApi.parseArticles(jsonResponse, articles);
+            } catch (Exception e) {
+                articles = null;
+            }
+            return new FetchResult(articles, false, null, null, 0);
+        }
+    }
+}
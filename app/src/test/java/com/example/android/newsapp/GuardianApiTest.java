@@ -0,0 +1,95 @@
+package com.example.android.newsapp;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the buffered read and parse of a Guardian search response, against the recorded
+ * response in guardian_search.json
+ */
+public class GuardianApiTest {
+
+    private static String readFixture() throws Exception {
+        InputStream inputStream =
+                GuardianApiTest.class.getClassLoader().getResourceAsStream("guardian_search.json");
+        try {
+            return GuardianApi.readFully(inputStream, -1);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Test
+    public void parseArticles_readsEveryResult() throws Exception {
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(readFixture(), articles);
+
+        assertEquals(3, articles.size());
+        Article first = articles.get(0);
+        assertEquals("Travel", first.getSection());
+        assertEquals("Winter breaks in Europe – readers' tips", first.getTitle());
+        assertEquals("article", first.getType());
+        assertEquals("https://www.theguardian.com/travel/2016/nov/29/winter-breaks-europe",
+                first.getUrl());
+        assertEquals(1480413600000L, first.getTimeInMillis());
+        assertEquals("https://media.guim.co.uk/winter/500.jpg", first.getThumbnailUrl());
+        assertEquals("liveblog", articles.get(1).getType());
+    }
+
+    @Test
+    public void parseArticles_stripsHtmlFromTrailText() throws Exception {
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(readFixture(), articles);
+
+        assertEquals("From Kraków to Tromsø: snow & markets",
+                articles.get(0).getTrailText());
+    }
+
+    @Test
+    public void parseArticles_leavesMissingFieldsNull() throws Exception {
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(readFixture(), articles);
+
+        // No "fields" object at all, and an empty one
+        assertNull(articles.get(1).getThumbnailUrl());
+        assertNull(articles.get(1).getTrailText());
+        assertNull(articles.get(2).getThumbnailUrl());
+        assertNull(articles.get(2).getTrailText());
+    }
+
+    @Test
+    public void parseArticles_keepsArticleWithBadDate() throws Exception {
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(readFixture(), articles);
+
+        assertEquals(-1, articles.get(2).getTimeInMillis());
+        assertEquals("", articles.get(2).getDisplayDate());
+    }
+
+    @Test(expected = JSONException.class)
+    public void parseArticles_throwsOnTruncatedResponse() throws Exception {
+        String response = readFixture();
+        GuardianApi.parseArticles(response.substring(0, response.length() / 2),
+                new ArrayList<Article>());
+    }
+
+    @Test
+    public void readFully_decodesAcrossBufferGrowth() throws Exception {
+        // Far longer than the expected length, with multi-byte characters all along
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append("Tromsø – ");
+        }
+        byte[] bytes = text.toString().getBytes(Charset.forName("UTF-8"));
+
+        assertEquals(text.toString(), GuardianApi.readFully(new ByteArrayInputStream(bytes), 10));
+    }
+}
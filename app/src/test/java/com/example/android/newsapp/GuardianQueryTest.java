@@ -0,0 +1,103 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the canonical URL and of the cache key built by {@link GuardianQuery.Builder}
+ */
+public class GuardianQueryTest {
+
+    @Test
+    public void toUrlString_sortsAndEncodesParameters() {
+        GuardianQuery query = new GuardianQuery.Builder()
+                .setQueryText(" fish & chips ")
+                .setApiKey("test")
+                .setOrderBy(GuardianQuery.ORDER_BY_NEWEST)
+                .setShowFields("thumbnail", "trailText")
+                .setPageSize(20)
+                .build();
+
+        assertEquals(GuardianQuery.ENDPOINT + "?api-key=test&order-by=newest&page-size=20"
+                + "&q=fish%20%26%20chips&show-fields=thumbnail%2CtrailText",
+                query.toUrlString());
+    }
+
+    @Test
+    public void getCacheKey_leavesOutApiKey() {
+        GuardianQuery query = new GuardianQuery.Builder()
+                .setApiKey("secret")
+                .setSection("travel")
+                .build();
+
+        assertEquals(GuardianQuery.ENDPOINT + "?section=travel", query.getCacheKey());
+        assertFalse(query.getCacheKey().contains("secret"));
+    }
+
+    @Test
+    public void build_isIndependentOfSetterOrder() {
+        GuardianQuery first = new GuardianQuery.Builder()
+                .setSection("travel").setPage(2).setApiKey("a").build();
+        GuardianQuery second = new GuardianQuery.Builder()
+                .setApiKey("b").setPage(2).setSection("travel").build();
+
+        assertEquals(first.getCacheKey(), second.getCacheKey());
+        assertNotEquals(first, second);
+        assertEquals(first, second.buildUpon().setApiKey("a").build());
+        assertEquals(first.hashCode(), second.buildUpon().setApiKey("a").build().hashCode());
+    }
+
+    @Test
+    public void setShowFields_isIndependentOfFieldOrder() {
+        GuardianQuery first = new GuardianQuery.Builder()
+                .setShowFields("trailText", "thumbnail").build();
+        GuardianQuery second = new GuardianQuery.Builder()
+                .setShowFields("thumbnail", "trailText", "thumbnail").build();
+
+        assertEquals(GuardianQuery.ENDPOINT + "?show-fields=thumbnail%2CtrailText",
+                first.getCacheKey());
+        assertEquals(first.getCacheKey(), second.getCacheKey());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void builder_removesParameterSetToNullOrEmpty() {
+        GuardianQuery query = new GuardianQuery.Builder()
+                .setSection("travel")
+                .setTag("travel/france")
+                .build()
+                .buildUpon()
+                .setSection(null)
+                .setTag("")
+                .setQueryText("   ")
+                .build();
+
+        assertEquals(GuardianQuery.ENDPOINT, query.getCacheKey());
+        assertEquals(1, query.getPage());
+        assertEquals(-1, query.getPageSize());
+    }
+
+    @Test
+    public void setFromDate_formatsUtcDate() {
+        GuardianQuery query = new GuardianQuery.Builder().setFromDate(1480413600000L).build();
+
+        assertEquals(GuardianQuery.ENDPOINT + "?from-date=2016-11-29T10%3A00%3A00Z",
+                query.getCacheKey());
+    }
+
+    @Test
+    public void encode_leavesUnreservedCharactersAlone() {
+        assertEquals("a-b._~%2A%20%2B%C3%B8", GuardianQuery.encode("a-b._~* +ø"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPage_rejectsPageZero() {
+        new GuardianQuery.Builder().setPage(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setPageSize_rejectsPageSizeAboveMaximum() {
+        new GuardianQuery.Builder().setPageSize(GuardianQuery.MAX_PAGE_SIZE + 1);
+    }
+}
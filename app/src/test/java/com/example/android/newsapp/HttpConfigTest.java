@@ -0,0 +1,114 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the capped backoff and the Retry-After parsing of {@link HttpConfig}
+ */
+public class HttpConfigTest {
+
+    private static final HttpConfig CONFIG = new HttpConfig(1000, 1000, 3, 500, 8000, 5, 30000);
+
+    @Test
+    public void backoff_doublesWithEveryAttempt() throws Exception {
+        // The upper end of the random range is the full backoff
+        assertEquals(500, CONFIG.getBackoffMillis(0, 0.999999), 1);
+        assertEquals(1000, CONFIG.getBackoffMillis(1, 0.999999), 1);
+        assertEquals(2000, CONFIG.getBackoffMillis(2, 0.999999), 1);
+        assertEquals(4000, CONFIG.getBackoffMillis(3, 0.999999), 1);
+    }
+
+    @Test
+    public void backoff_usesUpperHalfForJitter() throws Exception {
+        assertEquals(1000, CONFIG.getBackoffMillis(2, 0));
+        assertEquals(1500, CONFIG.getBackoffMillis(2, 0.5));
+    }
+
+    @Test
+    public void backoff_isCapped() throws Exception {
+        assertEquals(8000, CONFIG.getBackoffMillis(4, 0.999999), 1);
+        assertEquals(8000, CONFIG.getBackoffMillis(20, 0.999999), 1);
+        // Shifting by the attempt must not overflow into a short or negative backoff
+        assertEquals(8000, CONFIG.getBackoffMillis(Integer.MAX_VALUE, 0.999999), 1);
+    }
+
+    @Test
+    public void retryAfter_parsesSeconds() throws Exception {
+        assertEquals(120000, HttpConfig.parseRetryAfter("120"));
+        assertEquals(5000, HttpConfig.parseRetryAfter(" 5 "));
+        assertEquals(0, HttpConfig.parseRetryAfter("-3"));
+    }
+
+    @Test
+    public void retryAfter_clampsHugeSecondsInsteadOfOverflowing() throws Exception {
+        long maxBackoffMillis = CONFIG.getMaxBackoffMillis();
+        assertTrue(HttpConfig.parseRetryAfter("9223372036854775807") > maxBackoffMillis);
+        assertTrue(HttpConfig.parseRetryAfter("99999999999999999") > maxBackoffMillis);
+    }
+
+    @Test
+    public void retryAfter_parsesHttpDate() throws Exception {
+        SimpleDateFormat httpDateFormat =
+                new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String inAMinute = httpDateFormat.format(new Date(System.currentTimeMillis() + 60000));
+
+        long delay = HttpConfig.parseRetryAfter(inAMinute);
+        assertTrue(delay > 55000 && delay <= 60000);
+        assertEquals(0, HttpConfig.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    @Test
+    public void retryAfter_ignoresMissingOrInvalidValues() throws Exception {
+        assertEquals(-1, HttpConfig.parseRetryAfter(null));
+        assertEquals(-1, HttpConfig.parseRetryAfter(""));
+        assertEquals(-1, HttpConfig.parseRetryAfter("soon"));
+    }
+
+    @Test
+    public void faultyServer_answerIsRetryableWithItsDelay() throws Exception {
+        StubServer server = new StubServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().equals("/busy")) {
+                    exchange.getResponseHeaders().set("Retry-After", "2");
+                    StubServer.respond(exchange, 503, null);
+                } else {
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_NOT_FOUND, null);
+                }
+            }
+        });
+        try {
+            HttpURLConnection connection = GuardianApi.openConnection(server.getUrl("/busy"),
+                    null, null, CONFIG, new CancellationToken());
+            int responseCode = connection.getResponseCode();
+            long retryAfterMillis =
+                    HttpConfig.parseRetryAfter(connection.getHeaderField("Retry-After"));
+            FetchResult busy = new FetchResult(null, false, null, null, 0, responseCode,
+                    retryAfterMillis);
+            assertTrue(busy.isRetryable());
+            assertEquals(2000, busy.getRetryAfterMillis());
+
+            connection = GuardianApi.openConnection(server.getUrl("/missing"), null, null,
+                    CONFIG, new CancellationToken());
+            FetchResult missing = new FetchResult(null, false, null, null, 0,
+                    connection.getResponseCode(), -1);
+            // The server is up, a client error will not go away by asking again
+            assertFalse(missing.isRetryable());
+        } finally {
+            server.stop();
+        }
+    }
+}
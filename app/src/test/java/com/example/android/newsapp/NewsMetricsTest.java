@@ -0,0 +1,106 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link NewsMetrics}: the buckets and percentiles of a histogram, the counters, the
+ * timers and the calls made while the metrics are disabled
+ */
+public class NewsMetricsTest {
+
+    // Report of a run that recorded nothing
+    private static final String EMPTY_DUMP = "Counters\n\nHistograms (timers in ms)\n";
+
+    @Before
+    public void setUp() {
+        NewsMetrics.reset();
+        NewsMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        NewsMetrics.setEnabled(false);
+        NewsMetrics.reset();
+    }
+
+    @Test
+    public void histogram_reportsBucketUpperBounds() {
+        NewsMetrics.Histogram histogram = new NewsMetrics.Histogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        // The 50th value is in the bucket of 32 to 63, the 90th and 99th in the bucket of 64 to
+        // 127, which is capped at the largest value
+        assertEquals("count=100 mean=50 min=1 p50<=63 p90<=100 p99<=100 max=100",
+                histogram.summary());
+    }
+
+    @Test
+    public void histogram_putsZeroAndNegativeValuesInFirstBucket() {
+        NewsMetrics.Histogram histogram = new NewsMetrics.Histogram();
+        histogram.record(0);
+        histogram.record(-5);
+        histogram.record(1000);
+
+        assertEquals("count=3 mean=333 min=0 p50<=0 p90<=1000 p99<=1000 max=1000",
+                histogram.summary());
+    }
+
+    @Test
+    public void histogram_reportsOnlyCountWhenEmpty() {
+        assertEquals("count=0", new NewsMetrics.Histogram().summary());
+    }
+
+    @Test
+    public void counters_incrementAddAndReset() {
+        NewsMetrics.increment(NewsMetrics.COUNTER_REQUESTS);
+        NewsMetrics.increment(NewsMetrics.COUNTER_REQUESTS);
+        NewsMetrics.add(NewsMetrics.COUNTER_REQUESTS, 5);
+        NewsMetrics.add(NewsMetrics.COUNTER_ERRORS, 3);
+
+        assertEquals("Counters\n  http.errors = 3\n  http.requests = 7\n"
+                + "\nHistograms (timers in ms)\n", NewsMetrics.dump());
+
+        NewsMetrics.reset();
+        assertEquals(EMPTY_DUMP, NewsMetrics.dump());
+    }
+
+    @Test
+    public void stop_recordsMillisecondsInHistogram() {
+        long start = NewsMetrics.start();
+        assertTrue(start != 0);
+
+        NewsMetrics.stop(NewsMetrics.TIMER_PARSE, start - 5000000);
+        NewsMetrics.record(NewsMetrics.HISTOGRAM_BYTES, 2048);
+
+        String dump = NewsMetrics.dump();
+        assertTrue(dump, dump.contains("  http.bytes count=1 mean=2048 min=2048 "));
+        assertTrue(dump, dump.contains("  json.parse count=1 "));
+        assertTrue(dump, dump.indexOf("http.bytes") < dump.indexOf("json.parse"));
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        NewsMetrics.setEnabled(false);
+        assertFalse(NewsMetrics.isEnabled());
+
+        long start = NewsMetrics.start();
+        NewsMetrics.increment(NewsMetrics.COUNTER_REQUESTS);
+        NewsMetrics.add(NewsMetrics.COUNTER_ERRORS, 3);
+        NewsMetrics.record(NewsMetrics.HISTOGRAM_BYTES, 2048);
+        NewsMetrics.stop(NewsMetrics.TIMER_PARSE, start);
+
+        assertEquals(0, start);
+        assertEquals(EMPTY_DUMP, NewsMetrics.dump());
+
+        // A timer started while disabled records nothing once enabled
+        NewsMetrics.setEnabled(true);
+        NewsMetrics.stop(NewsMetrics.TIMER_PARSE, start);
+        assertEquals(EMPTY_DUMP, NewsMetrics.dump());
+    }
+}
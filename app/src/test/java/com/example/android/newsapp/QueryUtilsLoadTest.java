@@ -0,0 +1,171 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load tests of {@link QueryUtils#fetchArticleData(String, String, String, CancellationToken)}
+ * against a local server, on the framework classes of Robolectric. The load test of the benchmark
+ * module runs on a plain JVM, which QueryUtils does not, so the retries, the circuit breaker and
+ * the cancellation of the app's own fetch path are covered here: many concurrent requests that
+ * are answered with 503 and Retry-After first, and requests made after the trial request of the
+ * circuit breaker was cancelled.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 24, manifest = Config.NONE)
+public class QueryUtilsLoadTest {
+
+    private static final int REQUESTS = 100;
+    private static final int CONCURRENCY = 20;
+    private static final long LATENCY_MILLIS = 20;
+
+    private StubServer mServer;
+
+    // The ids of the /flaky requests answered with 503 already
+    private final Set<String> mFailedIds =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Before
+    public void setUp() throws Exception {
+        final byte[] gzipBody = StubServer.gzip(StubServer.readFixture("guardian_search.json"));
+        mServer = new StubServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                String query = exchange.getRequestURI().getQuery();
+                if (path.equals("/down")) {
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_UNAVAILABLE, null);
+                    return;
+                }
+                if (path.equals("/flaky") && mFailedIds.add(query)) {
+                    // The first request of every id is turned away, to be retried right away
+                    exchange.getResponseHeaders().set("Retry-After", "0");
+                    StubServer.respond(exchange, HttpURLConnection.HTTP_UNAVAILABLE, null);
+                    return;
+                }
+                try {
+                    // A slow server takes longer than any test waits for it
+                    Thread.sleep(path.equals("/slow") ? 10000 : LATENCY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                StubServer.respond(exchange, HttpURLConnection.HTTP_OK, gzipBody);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        QueryUtils.setHttpConfig(HttpConfig.DEFAULT);
+    }
+
+    // Fetch every URL with CONCURRENCY requests in flight and return the results in order
+    private static List<FetchResult> fetchAll(List<String> urls) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<FetchResult>> futures = new ArrayList<>();
+            for (final String url : urls) {
+                futures.add(executor.submit(new Callable<FetchResult>() {
+                    @Override
+                    public FetchResult call() {
+                        return QueryUtils.fetchArticleData(url, null, null);
+                    }
+                }));
+            }
+            List<FetchResult> fetchResults = new ArrayList<>();
+            for (Future<FetchResult> future : futures) {
+                fetchResults.add(future.get());
+            }
+            return fetchResults;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<String> urls(String path, int count) throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            urls.add(mServer.getUrl(path + "?id=" + i).toString());
+        }
+        return urls;
+    }
+
+    @Test
+    public void fetchArticleData_retriesConcurrentRequests() throws Exception {
+        // Every request fails once, the circuit must not open while the others succeed
+        QueryUtils.setHttpConfig(new HttpConfig(5000, 5000, 2, 10, 50, REQUESTS * 2, 1000));
+
+        List<FetchResult> fetchResults = fetchAll(urls("/flaky", REQUESTS));
+
+        for (FetchResult fetchResult : fetchResults) {
+            assertEquals(HttpURLConnection.HTTP_OK, fetchResult.getResponseCode());
+            assertEquals(3, fetchResult.getArticles().size());
+        }
+        assertEquals(2 * REQUESTS, mServer.getRequestCount());
+    }
+
+    @Test
+    public void fetchArticleData_recoversAfterCancelledTrial() throws Exception {
+        QueryUtils.setHttpConfig(new HttpConfig(5000, 5000, 0, 10, 50, 1, 100));
+
+        // One failure opens the circuit, the next request is not sent
+        assertNull(QueryUtils.fetchArticleData(mServer.getUrl("/down").toString(), null, null)
+                .getArticles());
+        assertNull(QueryUtils.fetchArticleData(mServer.getUrl("/ok").toString(), null, null)
+                .getArticles());
+        assertEquals(1, mServer.getRequestCount());
+
+        // Once the circuit is half open, cancel its trial request while the server is answering
+        Thread.sleep(150);
+        final CancellationToken cancellationToken = new CancellationToken();
+        final String slowUrl = mServer.getUrl("/slow").toString();
+        final FetchResult[] trialResult = new FetchResult[1];
+        Thread trial = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                trialResult[0] = QueryUtils.fetchArticleData(slowUrl, null, null,
+                        cancellationToken);
+            }
+        });
+        trial.start();
+        while (mServer.getRequestCount() < 2) {
+            Thread.sleep(10);
+        }
+        cancellationToken.cancel();
+        trial.join(2000);
+        assertFalse(trial.isAlive());
+        assertNull(trialResult[0].getArticles());
+
+        // The cancelled trial did not leave the circuit half open, the requests that follow get
+        // through: one as the next trial, all of the others once it closed the circuit
+        List<FetchResult> fetchResults = fetchAll(urls("/ok", 1));
+        fetchResults.addAll(fetchAll(urls("/ok", REQUESTS)));
+        for (FetchResult fetchResult : fetchResults) {
+            assertEquals(3, fetchResult.getArticles().size());
+        }
+        assertEquals(2 + 1 + REQUESTS, mServer.getRequestCount());
+    }
+}
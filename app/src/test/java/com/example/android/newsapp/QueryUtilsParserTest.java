@@ -0,0 +1,98 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the streaming parser of {@link QueryUtils} returns the same articles as the buffered
+ * JSONObject parser, on the JsonReader and TextUtils of Robolectric. The page of 200 results skips
+ * the fields object or some of its fields, has HTML and entities in the trail texts, escaped
+ * characters and fields the app does not read, in varying order.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 24, manifest = Config.NONE)
+public class QueryUtilsParserTest {
+
+    // Every field of an article, the parsers must agree on all of them
+    private static List<String> describe(List<Article> articles) {
+        List<String> descriptions = new ArrayList<>();
+        for (Article article : articles) {
+            descriptions.add(article.getSection() + '|' + article.getTitle() + '|'
+                    + article.getType() + '|' + article.getUrl() + '|'
+                    + article.getTimeInMillis() + '|' + article.getDisplayDate() + '|'
+                    + article.getThumbnailUrl() + '|' + article.getTrailText());
+        }
+        return descriptions;
+    }
+
+    // Parse the fixture with both parsers, check they agree and return the articles
+    private static List<Article> parseBoth(String fixture) throws Exception {
+        byte[] response = StubServer.readFixture(fixture);
+        List<Article> buffered = QueryUtils.extractArticlesFromJson(new String(response, "UTF-8"));
+        List<Article> streamed =
+                QueryUtils.extractArticlesFromStream(new ByteArrayInputStream(response));
+
+        assertNotNull(buffered);
+        assertEquals(describe(buffered), describe(streamed));
+        return streamed;
+    }
+
+    @Test
+    public void parsers_agreeOnLargePage() throws Exception {
+        List<Article> articles = parseBoth("guardian_search_200.json");
+
+        assertEquals(200, articles.size());
+        // Results without a fields object, with an empty one and with only one of the fields
+        assertNull(articles.get(3).getThumbnailUrl());
+        assertNull(articles.get(3).getTrailText());
+        assertNull(articles.get(5).getTrailText());
+        assertNull(articles.get(7).getTrailText());
+        assertNotNull(articles.get(7).getThumbnailUrl());
+        assertNull(articles.get(8).getThumbnailUrl());
+        assertEquals("From Kraków to Tromsø: snow & markets", articles.get(0).getTrailText());
+        assertEquals("Review markets: Kraków \"quoted\" \\ path/sep", articles.get(0).getTitle());
+        // Dates that do not parse
+        assertEquals(-1, articles.get(57).getTimeInMillis());
+        assertEquals(-1, articles.get(131).getTimeInMillis());
+    }
+
+    @Test
+    public void parsers_agreeOnMissingFieldsAndHtml() throws Exception {
+        List<Article> articles = parseBoth("guardian_search.json");
+
+        assertEquals(3, articles.size());
+        assertEquals("From Kraków to Tromsø: snow & markets", articles.get(0).getTrailText());
+        assertNull(articles.get(1).getThumbnailUrl());
+        assertNull(articles.get(2).getTrailText());
+    }
+
+    @Test
+    public void parsers_agreeOnEmptyResults() throws Exception {
+        assertTrue(parseBoth("guardian_search_empty.json").isEmpty());
+    }
+
+    @Test
+    public void extractArticlesFromStream_readsPooledBuffer() throws Exception {
+        byte[] response = StubServer.readFixture("guardian_search_200.json");
+        List<Article> expected = parseBoth("guardian_search_200.json");
+
+        // The way QueryUtils reads a response, the parser reads the pooled bytes in place
+        ResponseBuffer buffer =
+                ResponseBuffer.obtain(ResponseBuffer.expectedLength(response.length, false));
+        try {
+            buffer.readFrom(new ByteArrayInputStream(response));
+            assertEquals(describe(expected),
+                    describe(QueryUtils.extractArticlesFromStream(buffer.newInputStream())));
+        } finally {
+            buffer.recycle();
+        }
+    }
+}
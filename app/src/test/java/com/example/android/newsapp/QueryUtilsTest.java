@@ -0,0 +1,75 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the search and delta queries of {@link QueryUtils} and of the merge of a delta into a
+ * stored page
+ */
+public class QueryUtilsTest {
+
+    private static Article article(String url, long timeInMillis) {
+        return new Article("News", url, "article", url, timeInMillis, "", null, null);
+    }
+
+    private static List<String> urls(List<Article> articles) {
+        List<String> urls = new ArrayList<>();
+        for (Article article : articles) {
+            urls.add(article.getUrl());
+        }
+        return urls;
+    }
+
+    @Test
+    public void getSearchQuery_ordersNewestFirst() {
+        assertTrue(QueryUtils.getSearchQuery("brexit").getCacheKey().contains("order-by=newest"));
+    }
+
+    @Test
+    public void getDeltaQuery_onlyAddsFromDateToPage() {
+        GuardianQuery pageQuery =
+                QueryUtils.getPageQuery(QueryUtils.getSearchQuery("delta test"), 1, 20);
+        assertNull(QueryUtils.getDeltaQuery(pageQuery));
+
+        QueryUtils.trackNewestPublicationTime(pageQuery,
+                Arrays.asList(article("u1", 1480413600000L), article("u2", 1000)));
+        GuardianQuery deltaQuery = QueryUtils.getDeltaQuery(pageQuery);
+
+        // Same order as the page, so the delta lines up in front of it
+        assertEquals(pageQuery.buildUpon().setFromDate(1480413600000L).build(), deltaQuery);
+    }
+
+    @Test
+    public void mergeNewArticles_putsNewArticlesFirst() {
+        List<Article> stored = Arrays.asList(article("b", 2), article("a", 1));
+        // The delta includes the newest stored article, published at the start of its range
+        List<Article> delta = Arrays.asList(article("d", 4), article("c", 3), article("b", 2));
+
+        assertEquals(Arrays.asList("d", "c", "b", "a"),
+                urls(QueryUtils.mergeNewArticles(stored, delta, 10)));
+        assertEquals(Arrays.asList("d", "c", "b"),
+                urls(QueryUtils.mergeNewArticles(stored, delta, 3)));
+    }
+
+    @Test
+    public void mergeNewArticles_keepsEveryUrlOnce() {
+        List<Article> stored = Arrays.asList(article("b", 2), article("a", 1), article("b", 2));
+        List<Article> delta = Arrays.asList(article("c", 3), article("c", 3));
+
+        assertEquals(Arrays.asList("c", "b", "a"),
+                urls(QueryUtils.mergeNewArticles(stored, delta, 10)));
+    }
+
+    @Test
+    public void mergeNewArticles_returnsNullWithoutNewArticles() {
+        List<Article> stored = Arrays.asList(article("b", 2), article("a", 1));
+
+        assertNull(QueryUtils.mergeNewArticles(stored, Arrays.asList(article("b", 2)), 10));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the snapshot files written and read by {@link StoreSnapshot}
+ */
+public class StoreSnapshotTest {
+
+    private static List<StoreSnapshot.Entry> entries() {
+        Article article = new Article("Travel", "Winter breaks", "article", "u1",
+                1480413600000L, "", null, "Snow");
+        return Arrays.asList(
+                new StoreSnapshot.Entry("key1", 1000, "\"etag\"", null,
+                        Collections.singletonList(article)),
+                new StoreSnapshot.Entry("key2", 2000, null, "Tue, 29 Nov 2016 10:00:00 GMT",
+                        Collections.<Article>emptyList()));
+    }
+
+    @Test
+    public void read_returnsWrittenEntries() throws Exception {
+        File file = File.createTempFile("snapshot", ".seed");
+        try {
+            StoreSnapshot.write(entries(), file);
+            List<StoreSnapshot.Entry> entries = StoreSnapshot.read(file);
+
+            assertEquals(2, entries.size());
+            assertEquals("key1", entries.get(0).getCacheKey());
+            assertEquals(1000, entries.get(0).getFetchedAt());
+            assertEquals("\"etag\"", entries.get(0).getETag());
+            assertNull(entries.get(0).getLastModified());
+            assertEquals("Winter breaks", entries.get(0).getArticles().get(0).getTitle());
+            assertEquals("Tue, 29 Nov 2016 10:00:00 GMT", entries.get(1).getLastModified());
+            assertTrue(entries.get(1).getArticles().isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_throwsOnTruncatedFile() throws Exception {
+        File file = File.createTempFile("snapshot", ".seed");
+        try {
+            StoreSnapshot.write(entries(), file);
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(randomAccessFile.length() - 3);
+            randomAccessFile.close();
+
+            StoreSnapshot.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void read_throwsOnHugeEntryCount() throws Exception {
+        File file = File.createTempFile("snapshot", ".seed");
+        try {
+            StoreSnapshot.write(entries(), file);
+            // Magic, version, then the entry count
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.seek(8);
+            randomAccessFile.writeInt(Integer.MAX_VALUE);
+            randomAccessFile.close();
+
+            StoreSnapshot.read(file);
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.android.newsapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local HTTP server for the tests. Every request is counted and answered by the given handler on
+ * a thread of its own, so slow answers do not hold up each other.
+ */
+class StubServer {
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    StubServer(final HttpHandler handler) throws IOException {
+        // Without TCP_NODELAY the small writes of the JDK server wait for delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mServer = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 100);
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequestCount.incrementAndGet();
+                try {
+                    handler.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        mServer.start();
+    }
+
+    URL getUrl(String path) throws IOException {
+        InetSocketAddress address = mServer.getAddress();
+        return new URL("http://" + address.getHostString() + ":" + address.getPort() + path);
+    }
+
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Answer a request
+     * @param exchange is the request
+     * @param responseCode is the HTTP response code
+     * @param body is the response body, or null for none
+     */
+    static void respond(HttpExchange exchange, int responseCode, byte[] body)
+            throws IOException {
+        drain(exchange.getRequestBody());
+        if (body == null) {
+            exchange.sendResponseHeaders(responseCode, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(responseCode, body.length);
+        OutputStream responseBody = exchange.getResponseBody();
+        responseBody.write(body);
+        responseBody.close();
+    }
+
+    static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream gzipStream = new GZIPOutputStream(compressed);
+        gzipStream.write(bytes);
+        gzipStream.close();
+        return compressed.toByteArray();
+    }
+
+    static byte[] readFixture(String name) throws IOException {
+        InputStream inputStream = StubServer.class.getClassLoader().getResourceAsStream(name);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (inputStream.read(buffer) != -1) {
+            // Discard the bytes
+        }
+    }
+}
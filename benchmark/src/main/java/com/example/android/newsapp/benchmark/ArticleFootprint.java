@@ -0,0 +1,84 @@
+package com.example.android.newsapp.benchmark;
+
+import com.example.android.newsapp.Article;
+import com.example.android.newsapp.ArticleCodec;
+import com.example.android.newsapp.GuardianApi;
+
+import org.json.JSONException;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the retained heap of 1,000 parsed articles with JOL, next to the layout the article
+ * model had before its section, type and display date were pooled and its ISO date String was
+ * dropped, and the size of the same articles encoded by {@link ArticleCodec}.
+ *
+ * Run it with ./gradlew :benchmark:footprint
+ */
+
+public final class ArticleFootprint {
+
+    private static final int ARTICLE_COUNT = 1000;
+    private static final int PAGE_SIZE = 50;
+
+    // This class is only meant to hold the main method, an object instance is not needed
+    private ArticleFootprint() {
+    }
+
+    public static void main(String[] args) throws JSONException {
+        // Parse the articles one response at a time, the way the app receives them
+        List<Article> articles = new ArrayList<>(ARTICLE_COUNT);
+        String response = GuardianResponses.build(PAGE_SIZE);
+        while (articles.size() < ARTICLE_COUNT) {
+            GuardianApi.parseArticles(response, articles);
+        }
+
+        // The same articles in the previous layout, every field its own String
+        List<LegacyArticle> legacyArticles = new ArrayList<>(ARTICLE_COUNT);
+        for (Article article : articles) {
+            legacyArticles.add(new LegacyArticle(article));
+        }
+
+        GraphLayout current = GraphLayout.parseInstance(articles);
+        GraphLayout legacy = GraphLayout.parseInstance(legacyArticles);
+        byte[] encoded = ArticleCodec.encode(articles);
+
+        System.out.println(ARTICLE_COUNT + " articles");
+        System.out.println("  previous model: " + legacy.totalSize() + " bytes in "
+                + legacy.totalCount() + " objects");
+        System.out.println("  current model:  " + current.totalSize() + " bytes in "
+                + current.totalCount() + " objects");
+        System.out.println("  ArticleCodec:   " + encoded.length + " bytes");
+        System.out.println();
+        System.out.println(current.toFootprint());
+    }
+
+    // The article model before pooling, with copies standing in for the Strings every parse
+    // used to allocate per article
+    private static final class LegacyArticle {
+        final String mSection;
+        final String mTitle;
+        final String mType;
+        final String mDate;
+        final String mUrl;
+        final long mTimeInMillis;
+        final String mDisplayDate;
+
+        LegacyArticle(Article article) {
+            mSection = copyOf(article.getSection());
+            mTitle = article.getTitle();
+            mType = copyOf(article.getType());
+            mDate = copyOf("2016-11-26T14:05:00Z");
+            mUrl = article.getUrl();
+            mTimeInMillis = article.getTimeInMillis();
+            mDisplayDate = copyOf(article.getDisplayDate());
+        }
+
+        // A String with its own character data, new String(String) may share it
+        private static String copyOf(String value) {
+            return new String(value.toCharArray());
+        }
+    }
+}
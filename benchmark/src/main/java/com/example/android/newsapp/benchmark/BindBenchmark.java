@@ -0,0 +1,83 @@
+package com.example.android.newsapp.benchmark;
+
+import com.example.android.newsapp.Article;
+import com.example.android.newsapp.GuardianApi;
+import com.example.android.newsapp.GuardianQuery;
+import com.example.android.newsapp.PublicationDateParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the small per-request and per-row work: building the search URL, and getting the
+ * display date of an article when a row is bound
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindBenchmark {
+
+    private static final String API_KEY = "00000000-0000-0000-0000-000000000000";
+    private static final String DATE = "2016-11-26T14:05:00Z";
+
+    private PublicationDateParser mDateParser;
+    private Article mArticle;
+
+    @Setup
+    public void setUp() {
+        mDateParser = new PublicationDateParser();
+        mArticle = mDateParser.createArticle("Travel", "Title", "article", DATE,
+                "https://www.theguardian.com/travel/2016/nov/26/title");
+    }
+
+    // QueryUtils.getSearchQuery followed by QueryUtils.getPageQuery and building the URL
+    @Benchmark
+    public String getSearchUrlString() {
+        GuardianQuery searchQuery = new GuardianQuery.Builder()
+                .setApiKey(API_KEY)
+                .setQueryText("holiday")
+                .setShowFields(GuardianApi.SHOW_FIELDS)
+                .build();
+        return searchQuery.buildUpon().setPage(3).setPageSize(20).build().toUrlString();
+    }
+
+    // What ArticleAdapter.getView used to do on every bind: two new SimpleDateFormats, a parse
+    // and a format
+    @Benchmark
+    public String formatDatePerBind() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        Date newDate = format.parse(DATE);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
+        return dateFormat.format(newDate);
+    }
+
+    // What the bind does now, the date was formatted when the article was parsed
+    @Benchmark
+    public String formatDatePrecomputed() {
+        return mArticle.getDisplayDate();
+    }
+
+    // The cost moved into parsing, per article, with the parser shared by the whole response
+    @Benchmark
+    public Article createArticle() {
+        return mDateParser.createArticle("Travel", "Title", "article", DATE,
+                "https://www.theguardian.com/travel/2016/nov/26/title");
+    }
+}
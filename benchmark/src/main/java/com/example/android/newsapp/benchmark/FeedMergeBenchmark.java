@@ -0,0 +1,152 @@
+package com.example.android.newsapp.benchmark;
+
+import com.example.android.newsapp.Article;
+import com.example.android.newsapp.FeedMerger;
+import com.example.android.newsapp.FetchEngine;
+import com.example.android.newsapp.FixtureSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of building a merged feed of the 100 newest articles out of 10 sources holding 1,000
+ * to 50,000 articles in total. Every fifth article repeats the title of an earlier one with other
+ * punctuation, case or an extra word, under another URL, the way another source would carry it.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedMergeBenchmark {
+
+    private static final int SOURCE_COUNT = 10;
+    private static final int FEED_SIZE = 100;
+    private static final int VOCABULARY_SIZE = 5000;
+
+    private static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article a, Article b) {
+            long timeA = a.getTimeInMillis();
+            long timeB = b.getTimeInMillis();
+            return timeA < timeB ? 1 : (timeA == timeB ? 0 : -1);
+        }
+    };
+
+    @Param({"1000", "10000", "50000"})
+    public int articleCount;
+
+    private List<List<Article>> mSourceArticles;
+    private List<FixtureSource> mSources;
+    private FetchEngine mFetchEngine;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> titles = new ArrayList<>(articleCount);
+        mSourceArticles = new ArrayList<>(SOURCE_COUNT);
+        for (int i = 0; i < SOURCE_COUNT; i++) {
+            mSourceArticles.add(new ArrayList<Article>());
+        }
+
+        for (int i = 0; i < articleCount; i++) {
+            String title;
+            if (i % 5 == 4) {
+                title = variantOf(titles.get(random.nextInt(titles.size())), random);
+            } else {
+                title = randomTitle(random);
+            }
+            titles.add(title);
+            long timeInMillis = 1480000000000L + random.nextInt(30 * 24 * 3600) * 1000L;
+            mSourceArticles.get(i % SOURCE_COUNT).add(new Article("World news", title,
+                    "article", "https://example.com/" + i, timeInMillis, "", null, null));
+        }
+
+        mSources = new ArrayList<>(SOURCE_COUNT);
+        for (int i = 0; i < SOURCE_COUNT; i++) {
+            mSources.add(new FixtureSource("fixture-" + i, mSourceArticles.get(i), 0));
+        }
+        mFetchEngine = new FetchEngine(SOURCE_COUNT, SOURCE_COUNT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFetchEngine.shutdown();
+    }
+
+    // FeedMerger: de-duplicate URLs and near-identical titles, select the newest with a heap
+    @Benchmark
+    public List<Article> mergeTopK() {
+        FeedMerger merger = new FeedMerger();
+        for (List<Article> articles : mSourceArticles) {
+            merger.addAll(articles);
+        }
+        return merger.getNewest(FEED_SIZE);
+    }
+
+    // The previous merge: de-duplicate URLs only and sort the whole feed
+    @Benchmark
+    public List<Article> mergeSortAll() {
+        Map<String, Article> mergedByUrl = new LinkedHashMap<>();
+        for (List<Article> articles : mSourceArticles) {
+            for (Article article : articles) {
+                if (!mergedByUrl.containsKey(article.getUrl())) {
+                    mergedByUrl.put(article.getUrl(), article);
+                }
+            }
+        }
+        List<Article> merged = new ArrayList<>(mergedByUrl.values());
+        Collections.sort(merged, NEWEST_FIRST);
+        return merged.subList(0, Math.min(FEED_SIZE, merged.size()));
+    }
+
+    // The whole engine: fetch the fixture sources concurrently and merge them as they finish
+    @Benchmark
+    public List<Article> fetchAll() throws InterruptedException {
+        return mFetchEngine.fetchAll(mSources, FEED_SIZE, null);
+    }
+
+    private static String randomTitle(Random random) {
+        StringBuilder title = new StringBuilder();
+        int wordCount = 6 + random.nextInt(8);
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append("word").append(random.nextInt(VOCABULARY_SIZE));
+        }
+        return title.toString();
+    }
+
+    private static String variantOf(String title, Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return title.toUpperCase();
+            case 1:
+                return title.replaceFirst(" ", ": ") + " - video";
+            default:
+                return title + " live";
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.android.newsapp.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Builds Guardian API search responses for the benchmarks. Every result carries the full set of
+ * fields the real API returns, not only the ones the app reads, so the parsers skip as much as
+ * they do on a real response. The "fields" object holds what the app asks for with show-fields.
+ */
+
+public final class GuardianResponses {
+
+    private static final String[] SECTIONS = {
+            "Travel", "World news", "Life and style", "Money", "UK news", "Film", "Sport"};
+    private static final String[] TYPES = {"article", "liveblog", "gallery", "video"};
+
+    // This class is only meant to hold static methods, an object instance is not needed
+    private GuardianResponses() {
+    }
+
+    /**
+     * Build a search response String
+     * @param resultCount is the number of entries of the "results" array
+     * @return JSON response String
+     */
+    public static String build(int resultCount) {
+        StringBuilder json = new StringBuilder(600 + resultCount * 760);
+        json.append("{\n  \"response\": {\n")
+                .append("    \"status\": \"ok\",\n")
+                .append("    \"userTier\": \"developer\",\n")
+                .append("    \"total\": 48213,\n")
+                .append("    \"startIndex\": 1,\n")
+                .append("    \"pageSize\": ").append(resultCount).append(",\n")
+                .append("    \"currentPage\": 1,\n")
+                .append("    \"pages\": ").append(48213 / Math.max(1, resultCount)).append(",\n")
+                .append("    \"orderBy\": \"relevance\",\n")
+                .append("    \"results\": [\n");
+
+        for (int i = 0; i < resultCount; i++) {
+            String section = SECTIONS[i % SECTIONS.length];
+            String sectionId = section.toLowerCase(Locale.US).replace(' ', '-');
+            String id = sectionId + "/2016/nov/" + (1 + i % 28) + "/holiday-story-number-" + i;
+            json.append("      {\n")
+                    .append("        \"id\": \"").append(id).append("\",\n")
+                    .append("        \"type\": \"").append(TYPES[i % TYPES.length])
+                    .append("\",\n")
+                    .append("        \"sectionId\": \"").append(sectionId).append("\",\n")
+                    .append("        \"sectionName\": \"").append(section).append("\",\n")
+                    .append("        \"webPublicationDate\": \"2016-11-")
+                    .append(String.format(Locale.US, "%02d", 1 + i % 28))
+                    .append("T").append(String.format(Locale.US, "%02d", i % 24))
+                    .append(":15:00Z\",\n")
+                    .append("        \"webTitle\": \"Holiday story number ").append(i)
+                    .append(": where to go this winter, and what to pack \\u2013 in pictures\",\n")
+                    .append("        \"webUrl\": \"https://www.theguardian.com/").append(id)
+                    .append("\",\n")
+                    .append("        \"apiUrl\": \"https://content.guardianapis.com/").append(id)
+                    .append("\",\n")
+                    .append("        \"fields\": {\n")
+                    .append("          \"thumbnail\": \"https://media.guim.co.uk/")
+                    .append(Integer.toHexString(0x10000 + i))
+                    .append("/0_0_5000_3000/500.jpg\",\n")
+                    .append("          \"trailText\": \"Sun, snow <strong>and</strong> city ")
+                    .append("breaks &amp; where to find them this winter\"\n")
+                    .append("        },\n")
+                    .append("        \"isHosted\": false\n")
+                    .append(i == resultCount - 1 ? "      }\n" : "      },\n");
+        }
+
+        json.append("    ]\n  }\n}\n");
+        return json.toString();
+    }
+}
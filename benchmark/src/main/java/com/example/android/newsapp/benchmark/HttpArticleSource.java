@@ -0,0 +1,122 @@
+package com.example.android.newsapp.benchmark;
+
+import com.example.android.newsapp.Article;
+import com.example.android.newsapp.ArticleSource;
+import com.example.android.newsapp.CountingInputStream;
+import com.example.android.newsapp.FetchResult;
+import com.example.android.newsapp.GuardianApi;
+import com.example.android.newsapp.ResponseBuffer;
+import com.sun.management.ThreadMXBean;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link ArticleSource} fetching a search response over HTTP the way QueryUtils.fetchArticleData
+ * does with its buffered parser: a gzip GET with the app's timeouts, the body read into a pooled
+ * buffer sized from the Content-Length with GuardianApi.readFully and parsed with
+ * GuardianApi.parseArticles. QueryUtils itself depends on the Android framework, so it cannot run
+ * on a plain JVM. Every fetch is recorded in a {@link RequestStats}, and failed requests are not
+ * retried.
+ */
+
+public class HttpArticleSource implements ArticleSource {
+
+    // The default timeouts of the app, see HttpConfig.DEFAULT
+    private static final int CONNECT_TIMEOUT_MILLIS = 15000;
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    // Measures the bytes every fetch allocates on its thread, HotSpot specific
+    private static final ThreadMXBean THREAD_MX_BEAN =
+            (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final URL mUrl;
+    private final RequestStats mStats;
+
+    /**
+     * Constructs a new {@link HttpArticleSource}
+     * @param url is the URL of the search request
+     * @param stats records every fetch
+     */
+    public HttpArticleSource(URL url, RequestStats stats) {
+        mUrl = url;
+        mStats = stats;
+    }
+
+    @Override
+    public String getKey() {
+        return mUrl.toString();
+    }
+
+    @Override
+    public String getHost() {
+        return mUrl.getHost();
+    }
+
+    @Override
+    public FetchResult fetch() {
+        long threadId = Thread.currentThread().getId();
+        long allocatedStart = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        ArrayList<Article> articles = null;
+        int responseCode = -1;
+        long byteCount = 0;
+        try {
+            HttpURLConnection urlConnection = (HttpURLConnection) mUrl.openConnection();
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            urlConnection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+            responseCode = urlConnection.getResponseCode();
+
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                CountingInputStream countingStream =
+                        new CountingInputStream(urlConnection.getInputStream());
+                boolean gzip = "gzip".equalsIgnoreCase(urlConnection.getContentEncoding());
+                InputStream inputStream =
+                        gzip ? new GZIPInputStream(countingStream) : countingStream;
+                String jsonResponse = GuardianApi.readFully(inputStream,
+                        ResponseBuffer.expectedLength(urlConnection.getContentLength(), gzip));
+                inputStream.close();
+                byteCount = countingStream.getCount();
+                articles = new ArrayList<>();
+                GuardianApi.parseArticles(jsonResponse, articles);
+            } else {
+                // Read the error body, if any, so the connection can be reused
+                InputStream errorStream = urlConnection.getErrorStream();
+                if (errorStream != null) {
+                    CountingInputStream countingStream = new CountingInputStream(errorStream);
+                    drain(countingStream);
+                    countingStream.close();
+                    byteCount = countingStream.getCount();
+                }
+            }
+        } catch (IOException | JSONException e) {
+            articles = null;
+        }
+
+        long latencyNanos = System.nanoTime() - start;
+        mStats.record(latencyNanos, articles != null, byteCount,
+                articles != null ? articles.size() : 0,
+                THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocatedStart);
+        return new FetchResult(articles, false, null, null, byteCount, responseCode, -1);
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (inputStream.read(buffer) != -1) {
+            // Discard the bytes
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.android.newsapp.benchmark;
+
+import com.example.android.newsapp.FetchEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the fetch path against a {@link StubGuardianServer}. A number of search requests
+ * is sent at a fixed concurrency, either straight from a thread pool, through the
+ * {@link FetchEngine}, or both one after the other, and the latency percentiles, the throughput,
+ * the peak heap and the garbage collections of every run are reported.
+ *
+ * The requests are made by {@link HttpArticleSource}, as QueryUtils cannot run on a plain JVM.
+ * The retries, circuit breaker and cancellation of QueryUtils.fetchArticleData are load tested
+ * by QueryUtilsLoadTest of the app's unit tests instead.
+ *
+ * Options, all optional, as --name=value:
+ *   requests      number of requests of every run, 1000 by default
+ *   concurrency   number of requests in flight, 50 by default
+ *   results       number of articles of a synthetic response, 50 by default
+ *   response-file a recorded Guardian search response to serve instead of a synthetic one
+ *   latency       milliseconds the server waits before answering, 20 by default
+ *   error-rate    fraction of the requests answered with 503, 0.01 by default
+ *   mode          direct, engine or both, both by default
+ *
+ * Run it with ./gradlew :benchmark:loadTest -PloadTestArgs="--requests=5000 --latency=50"
+ */
+
+public final class LoadTest {
+
+    // This class is only meant to hold the main method, an object instance is not needed
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int requests = Integer.parseInt(option(options, "requests", "1000"));
+        int concurrency = Integer.parseInt(option(options, "concurrency", "50"));
+        int results = Integer.parseInt(option(options, "results", "50"));
+        long latencyMillis = Long.parseLong(option(options, "latency", "20"));
+        double errorRate = Double.parseDouble(option(options, "error-rate", "0.01"));
+        String mode = option(options, "mode", "both");
+
+        byte[] body;
+        String responseFile = options.get("response-file");
+        if (responseFile != null) {
+            body = Files.readAllBytes(new File(responseFile).toPath());
+        } else {
+            body = GuardianResponses.build(results).getBytes(Charset.forName("UTF-8"));
+        }
+
+        StubGuardianServer server = new StubGuardianServer(body, latencyMillis, errorRate);
+        server.start();
+        System.out.println(String.format(Locale.US,
+                "%d requests, %d concurrent, %d byte responses, %d ms latency, %.1f%% errors",
+                requests, concurrency, body.length, latencyMillis, errorRate * 100));
+        try {
+            // Warm up the connections and the code paths before anything is measured
+            runDirect(server, Math.min(requests, 200), concurrency, new RequestStats());
+
+            if (mode.equals("direct") || mode.equals("both")) {
+                measure("direct", server, requests, concurrency, false);
+            }
+            if (mode.equals("engine") || mode.equals("both")) {
+                measure("FetchEngine", server, requests, concurrency, true);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void measure(String name, StubGuardianServer server, int requests,
+                                int concurrency, boolean engine)
+            throws IOException, InterruptedException {
+        RequestStats stats = new RequestStats();
+        HeapStats heapStats = new HeapStats();
+
+        long start = System.nanoTime();
+        if (engine) {
+            runEngine(server, requests, concurrency, stats);
+        } else {
+            runDirect(server, requests, concurrency, stats);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        System.out.println();
+        System.out.println(name);
+        System.out.println(stats.report(elapsedNanos));
+        System.out.println(heapStats.report());
+    }
+
+    // Send the requests from a pool of concurrency threads, every thread fetching on its own
+    private static void runDirect(StubGuardianServer server, int requests, int concurrency,
+                                  RequestStats stats) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        for (final HttpArticleSource source : createSources(server, requests, stats)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    source.fetch();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    // Send the requests through a FetchEngine, merging the responses like the app does. All of
+    // the sources share the host of the server, so its per host limit is the concurrency.
+    private static void runEngine(StubGuardianServer server, int requests, int concurrency,
+                                  RequestStats stats) throws IOException, InterruptedException {
+        FetchEngine engine = new FetchEngine(concurrency, concurrency);
+        try {
+            engine.fetchAll(createSources(server, requests, stats), 100, null);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    // A source for every request, each asking for a page of its own
+    private static List<HttpArticleSource> createSources(StubGuardianServer server, int requests,
+                                                         RequestStats stats) throws IOException {
+        List<HttpArticleSource> sources = new ArrayList<>(requests);
+        for (int i = 1; i <= requests; i++) {
+            URL url = new URL(server.getEndpoint() + "?q=news&page=" + i);
+            sources.add(new HttpArticleSource(url, stats));
+        }
+        return sources;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    // The heap of a run: its peak use above the live heap before it, and the garbage collections
+    // it caused
+    private static final class HeapStats {
+
+        private final long mBaselineBytes;
+        private final long mGcCount;
+        private final long mGcMillis;
+
+        HeapStats() {
+            System.gc();
+            long baselineBytes = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                    baselineBytes += pool.getUsage().getUsed();
+                }
+            }
+            mBaselineBytes = baselineBytes;
+            mGcCount = gcCount();
+            mGcMillis = gcMillis();
+        }
+
+        String report() {
+            long peakBytes = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peakBytes += pool.getPeakUsage().getUsed();
+                }
+            }
+            return String.format(Locale.US,
+                    "heap: %.1f MB live before, %.1f MB peak, %d collections taking %d ms",
+                    mBaselineBytes / 1e6, peakBytes / 1e6, gcCount() - mGcCount,
+                    gcMillis() - mGcMillis);
+        }
+
+        private static long gcCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean collector
+                    : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, collector.getCollectionCount());
+            }
+            return count;
+        }
+
+        private static long gcMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean collector
+                    : ManagementFactory.getGarbageCollectorMXBeans()) {
+                millis += Math.max(0, collector.getCollectionTime());
+            }
+            return millis;
+        }
+    }
+}
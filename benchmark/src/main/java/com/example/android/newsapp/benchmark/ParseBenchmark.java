@@ -0,0 +1,96 @@
+package com.example.android.newsapp.benchmark;
+
+import com.example.android.newsapp.Article;
+import com.example.android.newsapp.GuardianApi;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of reading and parsing Guardian search responses of 10, 50 and 200 results, the
+ * work QueryUtils.readFromStream and QueryUtils.extractArticlesFromJson do for every response.
+ * readLines is the line by line read readFromStream did before it read into a pooled
+ * ResponseBuffer, the gc.alloc.rate.norm of the GC profiler shows the garbage of each.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int resultCount;
+
+    private byte[] mResponseBytes;
+    private String mResponseString;
+
+    @Setup
+    public void setUp() {
+        mResponseString = GuardianResponses.build(resultCount);
+        mResponseBytes = mResponseString.getBytes(Charset.forName("UTF-8"));
+    }
+
+    // The previous QueryUtils.readFromStream: decode the response bytes line by line and join
+    // the lines into a String
+    @Benchmark
+    public String readLines() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(mResponseBytes), Charset.forName("UTF-8")));
+        StringBuilder output = new StringBuilder();
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+        return output.toString();
+    }
+
+    // QueryUtils.readFromStream: read the response bytes into a pooled buffer, sized from the
+    // Content-Length, and decode them into a String
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return GuardianApi.readFully(new ByteArrayInputStream(mResponseBytes),
+                mResponseBytes.length);
+    }
+
+    // QueryUtils.extractArticlesFromJson: parse the String into a JSONObject tree and build the
+    // articles, including their publication dates
+    @Benchmark
+    public List<Article> extractArticlesFromJson() throws JSONException {
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(mResponseString, articles);
+        return articles;
+    }
+
+    // Both of the above, the whole buffered path from response bytes to articles
+    @Benchmark
+    public List<Article> readAndExtract() throws IOException, JSONException {
+        String jsonResponse = GuardianApi.readFully(new ByteArrayInputStream(mResponseBytes),
+                mResponseBytes.length);
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(jsonResponse, articles);
+        return articles;
+    }
+}
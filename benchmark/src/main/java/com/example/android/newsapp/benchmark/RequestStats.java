@@ -0,0 +1,75 @@
+package com.example.android.newsapp.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Thread safe record of the requests of a load test: the latency of every request, the number of
+ * failures, the bytes and articles received, and the bytes allocated to handle them
+ */
+
+public class RequestStats {
+
+    private long[] mLatencies = new long[1024];
+    private int mCount;
+    private int mFailures;
+    private long mByteCount;
+    private long mArticleCount;
+    private long mAllocatedBytes;
+
+    /**
+     * Record a finished request
+     * @param latencyNanos is the time from opening the connection to the parsed articles
+     * @param success is false if the request failed
+     * @param byteCount is the number of response body bytes read off the network
+     * @param articleCount is the number of parsed articles
+     * @param allocatedBytes is the number of bytes the request allocated on its thread
+     */
+    public synchronized void record(long latencyNanos, boolean success, long byteCount,
+                                    int articleCount, long allocatedBytes) {
+        if (mCount == mLatencies.length) {
+            mLatencies = Arrays.copyOf(mLatencies, mCount * 2);
+        }
+        mLatencies[mCount++] = latencyNanos;
+        if (!success) {
+            mFailures++;
+        }
+        mByteCount += byteCount;
+        mArticleCount += articleCount;
+        mAllocatedBytes += allocatedBytes;
+    }
+
+    /**
+     * Return a report of the recorded requests
+     * @param elapsedNanos is the wall clock time the requests took altogether
+     * @return report String
+     */
+    public synchronized String report(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(mLatencies, mCount);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        return String.format(Locale.US,
+                "requests=%d failures=%d (%.1f%%)%n"
+                        + "latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n"
+                        + "throughput: %.0f requests/s, %.0f articles/s, %.2f MB/s%n"
+                        + "garbage: %.1f KB allocated per request",
+                mCount, mFailures, mCount == 0 ? 0 : 100.0 * mFailures / mCount,
+                millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.9)),
+                millis(percentile(sorted, 0.99)), millis(percentile(sorted, 1)),
+                mCount / seconds, mArticleCount / seconds, mByteCount / seconds / 1e6,
+                mCount == 0 ? 0 : mAllocatedBytes / 1e3 / mCount);
+    }
+
+    // Nearest rank percentile of a sorted array
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(sorted.length * percentile);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
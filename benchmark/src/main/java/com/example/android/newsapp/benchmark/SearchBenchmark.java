@@ -0,0 +1,83 @@
+package com.example.android.newsapp.benchmark;
+
+import com.example.android.newsapp.Article;
+import com.example.android.newsapp.ArticleIndex;
+import com.example.android.newsapp.GuardianApi;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the local search index: building it from the articles of a full article store,
+ * and the searches the user can type against it
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    // 1000 is the most the article store holds
+    @Param({"200", "1000"})
+    public int articleCount;
+
+    private List<Article> mArticles;
+    private ArticleIndex mIndex;
+
+    @Setup
+    public void setUp() throws JSONException {
+        mArticles = new ArrayList<>();
+        GuardianApi.parseArticles(GuardianResponses.build(articleCount), mArticles);
+        mIndex = new ArticleIndex();
+        mIndex.addAll(mArticles);
+    }
+
+    // Index every article from scratch, what the first responses of a run add up to
+    @Benchmark
+    public ArticleIndex buildIndex() {
+        ArticleIndex index = new ArticleIndex();
+        index.addAll(mArticles);
+        return index;
+    }
+
+    // A word of every title, the largest possible result
+    @Benchmark
+    public List<Article> searchCommonWord() {
+        return mIndex.search("winter");
+    }
+
+    // A section name
+    @Benchmark
+    public List<Article> searchSection() {
+        return mIndex.search("film");
+    }
+
+    // A word and a number still being typed, the number matches as a prefix, like 420
+    @Benchmark
+    public List<Article> searchTwoWords() {
+        return mIndex.search("story 42");
+    }
+
+    // A word that is not indexed
+    @Benchmark
+    public List<Article> searchMiss() {
+        return mIndex.search("election");
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.android.newsapp.benchmark;
+
+import com.example.android.newsapp.Article;
+import com.example.android.newsapp.GuardianApi;
+import com.example.android.newsapp.StoreSnapshot;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of loading a pre-seeded feed at startup: reading a {@link StoreSnapshot} of 10
+ * queries, from memory and from a memory mapped file, against parsing the equivalent 10 JSON
+ * responses the way QueryUtils.extractArticlesFromJson does
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    // Number of queries in the snapshot, like the pages and topics of a seeded feed
+    private static final int QUERY_COUNT = 10;
+
+    @Param({"10", "50", "200"})
+    public int resultCount;
+
+    private String mResponseString;
+    private byte[] mSnapshotBytes;
+    private File mSnapshotFile;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        mResponseString = GuardianResponses.build(resultCount);
+        List<Article> articles = new ArrayList<>();
+        GuardianApi.parseArticles(mResponseString, articles);
+
+        List<StoreSnapshot.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            entries.add(new StoreSnapshot.Entry(
+                    "https://content.guardianapis.com/search?page=" + (i + 1),
+                    System.currentTimeMillis(), "\"etag-" + i + "\"", null, articles));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        StoreSnapshot.write(entries, out);
+        out.flush();
+        mSnapshotBytes = bytes.toByteArray();
+
+        mSnapshotFile = File.createTempFile("snapshot", ".seed");
+        StoreSnapshot.write(entries, mSnapshotFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mSnapshotFile.delete();
+    }
+
+    // Decode the snapshot from a byte array, the cost of the format alone
+    @Benchmark
+    public List<StoreSnapshot.Entry> readSnapshot() throws IOException {
+        return StoreSnapshot.read(new DataInputStream(new ByteArrayInputStream(mSnapshotBytes)));
+    }
+
+    // Map the snapshot file and decode it, what the store does when it imports the seed
+    @Benchmark
+    public List<StoreSnapshot.Entry> readMappedSnapshot() throws IOException {
+        return StoreSnapshot.read(mSnapshotFile);
+    }
+
+    // Parse the same articles from the JSON responses they came from
+    @Benchmark
+    public List<List<Article>> extractArticlesFromJson() throws JSONException {
+        List<List<Article>> pages = new ArrayList<>(QUERY_COUNT);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            List<Article> articles = new ArrayList<>();
+            GuardianApi.parseArticles(mResponseString, articles);
+            pages.add(articles);
+        }
+        return pages;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.android.newsapp.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local HTTP server standing in for the Guardian API search endpoint. Every request to /search is
+ * answered with the same recorded or synthetic response body, gzip compressed when the client
+ * asks for it like the app does, after a configurable latency. A configurable fraction of the
+ * requests fails with 503 Service Unavailable instead.
+ */
+
+public class StubGuardianServer {
+
+    // Path of the search endpoint
+    public static final String PATH = "/search";
+
+    private final byte[] mBody;
+    private final byte[] mGzipBody;
+    private final long mLatencyMillis;
+    private final double mErrorRate;
+
+    private HttpServer mServer;
+    private ExecutorService mExecutor;
+
+    /**
+     * Constructs a new {@link StubGuardianServer}
+     * @param body is the response body of every successful request, a Guardian search response
+     * @param latencyMillis is how long every request waits before it is answered
+     * @param errorRate is the fraction of the requests answered with 503, from 0 to 1
+     */
+    public StubGuardianServer(byte[] body, long latencyMillis, double errorRate) {
+        mBody = body;
+        mGzipBody = gzip(body);
+        mLatencyMillis = latencyMillis;
+        mErrorRate = errorRate;
+    }
+
+    /**
+     * Start serving on a free port of the loopback interface. Every request gets a thread of its
+     * own, so the server never queues the requests of the client under test.
+     * @throws IOException if the server could not be started
+     */
+    public void start() throws IOException {
+        // Without TCP_NODELAY the small writes of the JDK server wait for delayed ACKs, adding
+        // some 40 ms to every response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mServer = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "StubGuardianServer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mServer.setExecutor(mExecutor);
+        mServer.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        mServer.start();
+    }
+
+    // Stop serving, requests still running are abandoned
+    public void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    // The URL String of the search endpoint, without any parameters
+    public String getEndpoint() {
+        return "http://" + mServer.getAddress().getHostString() + ":"
+                + mServer.getAddress().getPort() + PATH;
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        try {
+            // Consume the request, a GET has no body but the exchange expects it read
+            drain(exchange.getRequestBody());
+
+            if (mLatencyMillis > 0) {
+                Thread.sleep(mLatencyMillis);
+            }
+
+            if (mErrorRate > 0 && ThreadLocalRandom.current().nextDouble() < mErrorRate) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] body = mBody;
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                body = mGzipBody;
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream responseBody = exchange.getResponseBody();
+            responseBody.write(body);
+            responseBody.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (inputStream.read(buffer) != -1) {
+            // Discard the bytes
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try {
+            GZIPOutputStream gzipStream = new GZIPOutputStream(compressed);
+            gzipStream.write(bytes);
+            gzipStream.close();
+        } catch (IOException e) {
+            // A ByteArrayOutputStream never throws
+            throw new IllegalStateException(e);
+        }
+        return compressed.toByteArray();
+    }
+}